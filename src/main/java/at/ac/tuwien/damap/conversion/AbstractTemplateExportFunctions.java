@@ -6,6 +6,7 @@ import java.lang.reflect.Field;
 import java.util.*;
 import java.text.SimpleDateFormat;
 
+import at.ac.tuwien.damap.enums.ETemplateType;
 import at.ac.tuwien.damap.repo.DmpRepo;
 import at.ac.tuwien.damap.repo.InternalStorageTranslationRepo;
 import lombok.extern.jbosslog.JBossLog;
@@ -24,6 +25,9 @@ public abstract class AbstractTemplateExportFunctions {
     @Inject
     InternalStorageTranslationRepo internalStorageTranslationRepo;
 
+    @Inject
+    CompiledTemplateCache compiledTemplateCache;
+
     //Convert the date for readable format for the document
     protected final SimpleDateFormat formatter = new SimpleDateFormat("yyyy-MM-dd");
 
@@ -43,54 +47,92 @@ public abstract class AbstractTemplateExportFunctions {
         return templateFormatting(document, startChar, endChar);
     }
 
+    /**
+     * Method to load the export template from the compiled template cache.
+     * The template is only parsed and formatted again if its content changed.
+     *
+     * @param type
+     * @param template
+     * @param startChar
+     * @param endChar
+     * @return
+     * @throws Exception
+     */
+    public XWPFDocument loadTemplate(ETemplateType type, InputStream template, String startChar, String endChar) throws Exception {
+        return compiledTemplateCache.getDocument(type, template, t -> loadTemplate(t, startChar, endChar));
+    }
+
     /**
      * Method to replace variable in the document's paragraphs
      * Each XWPFRun will contain part of a text. These are split weirdly (by Word?).
      * Special characters will usually be separated from strings, but might be connected if several words are within that textblock.
      * Also capitalized letters seem to behave differently and are sometimes separated from the characters following them.
+     * Each run is scanned once for all placeholders, see {@link PlaceholderReplacer}.
      *
      * @param xwpfParagraphs
      * @param replacements
      */
     static void replaceInParagraphs(List<XWPFParagraph> xwpfParagraphs, Map<String, String> replacements) {
+        replaceInParagraphs(xwpfParagraphs, new PlaceholderReplacer(replacements));
+    }
+
+    static void replaceInParagraphs(List<XWPFParagraph> xwpfParagraphs, PlaceholderReplacer replacer) {
         for (XWPFParagraph xwpfParagraph : xwpfParagraphs) {
-            List<XWPFRun> xwpfRuns = xwpfParagraph.getRuns();
-            for (XWPFRun xwpfRun : xwpfRuns) {
+            for (XWPFRun xwpfRun : xwpfParagraph.getRuns()) {
                 String xwpfRunText = xwpfRun.getText(xwpfRun.getTextPosition());
-                for (Map.Entry<String, String> entry : replacements.entrySet()) {
-                    if (xwpfRunText != null && xwpfRunText.contains(entry.getKey())) {
-                        //handle new line for contributor list and storage information
-                        if (entry.getValue().contains(";")) {
-                            String[] value = entry.getValue().split(";");
-                            for (int i = 0; i < value.length; i++) {
-                                xwpfParagraph.setAlignment(ParagraphAlignment.LEFT);
-                                xwpfRun.setText(value[i].trim());
-                                if (i < value.length - 1) {
-                                    xwpfRun.addBreak();
-                                    xwpfRun.addBreak();
-                                }
+                if (xwpfRunText == null) {
+                    continue;
+                }
+                PlaceholderReplacer.Match match = replacer.find(xwpfRunText, 0);
+                if (match == null) {
+                    continue;
+                }
+
+                StringBuilder sb = new StringBuilder(xwpfRunText.length() + 32);
+                int last = 0;
+                boolean resized = false;
+                boolean colored = false;
+                while (match != null) {
+                    String value = match.getValue();
+                    //handle new line for contributor list and storage information
+                    if (value.contains(";")) {
+                        String[] values = value.split(";");
+                        for (int i = 0; i < values.length; i++) {
+                            xwpfParagraph.setAlignment(ParagraphAlignment.LEFT);
+                            xwpfRun.setText(values[i].trim());
+                            if (i < values.length - 1) {
+                                xwpfRun.addBreak();
+                                xwpfRun.addBreak();
                             }
-                            // TODO: when xwpfRun.removeBreak is implemented:
-                            //  replace the above for loop with an enhanced one
-                            //  remove the extra if inside the loop
-                            //  call removeBreak twice outside the loop
-                            xwpfRunText = "";
                         }
-                        //general case for non contributor list
-                        else {
-                            if (entry.getKey().equals("[projectname]") && entry.getValue().contains("#oversize")) { //resize title to be smaller
-                                xwpfRun.setFontSize(xwpfRun.getFontSize() - 4);
-                                xwpfRunText = xwpfRunText.replace(entry.getKey(), entry.getValue().replace("#oversize", ""));
-                            } else if (entry.getValue().contains("#color_green")) { // set the color to be green
-                                xwpfRun.setColor("92D050");
-                                xwpfRunText = xwpfRunText.replace(entry.getKey(), entry.getValue().replace("#color_green", ""));
-                            } else {
-                                xwpfRunText = xwpfRunText.replace(entry.getKey(), entry.getValue());
-                            }
+                        // TODO: when xwpfRun.removeBreak is implemented:
+                        //  replace the above for loop with an enhanced one
+                        //  remove the extra if inside the loop
+                        //  call removeBreak twice outside the loop
+                        sb.setLength(0);
+                        last = xwpfRunText.length();
+                        break;
+                    }
+                    //general case for non contributor list
+                    if (match.getPlaceholder().equals("[projectname]") && value.contains("#oversize")) { //resize title to be smaller
+                        if (!resized) {
+                            xwpfRun.setFontSize(xwpfRun.getFontSize() - 4);
+                            resized = true;
+                        }
+                        value = value.replace("#oversize", "");
+                    } else if (value.contains("#color_green")) { // set the color to be green
+                        if (!colored) {
+                            xwpfRun.setColor("92D050");
+                            colored = true;
                         }
+                        value = value.replace("#color_green", "");
                     }
+                    sb.append(xwpfRunText, last, match.getStart()).append(value);
+                    last = match.getEnd();
+                    match = replacer.find(xwpfRunText, last);
                 }
-                xwpfRun.setText(xwpfRunText, 0);
+                sb.append(xwpfRunText, last, xwpfRunText.length());
+                xwpfRun.setText(sb.toString(), 0);
             }
         }
     }
@@ -157,13 +199,14 @@ public abstract class AbstractTemplateExportFunctions {
      */
     static void replaceTableVariables(XWPFTable table, Map<String, String> replacements) {
         //this replaces variables in tables (e.g. costcurrency)
+        PlaceholderReplacer replacer = new PlaceholderReplacer(replacements);
         List<XWPFTableRow> tableRows = table.getRows();
         for (XWPFTableRow xwpfTableRow : tableRows) {
             List<XWPFTableCell> tableCells = xwpfTableRow
                     .getTableCells();
             for (XWPFTableCell xwpfTableCell : tableCells) {
                 List<XWPFParagraph> xwpfParagraphs = xwpfTableCell.getParagraphs();
-                replaceInParagraphs(xwpfParagraphs, replacements);
+                replaceInParagraphs(xwpfParagraphs, replacer);
             }
         }
     }
@@ -187,16 +230,15 @@ public abstract class AbstractTemplateExportFunctions {
      * @param replacements
      */
     public void replaceTextInFooter(XWPFDocument doc, Map<String, String> replacements) {
+        PlaceholderReplacer replacer = new PlaceholderReplacer(replacements);
         for (XWPFFooter footer : doc.getFooterList()) {
             for (XWPFParagraph xwpfParagraph : footer.getParagraphs()) {
                 for (XWPFRun xwpfRun : xwpfParagraph.getRuns()) {
                     String xwpfRunText = xwpfRun.getText(xwpfRun.getTextPosition());
-                    for (Map.Entry<String, String> entry : replacements.entrySet()) {
-                        if (xwpfRunText != null && xwpfRunText.contains(entry.getKey())) {
-                            xwpfRunText = xwpfRunText.replace(entry.getKey(), entry.getValue());
-                        }
+                    String replaced = replacer.replace(xwpfRunText);
+                    if (replaced != xwpfRunText) {
+                        xwpfRun.setText(replaced, 0);
                     }
-                    xwpfRun.setText(xwpfRunText, 0);
                 }
             }
         }
@@ -0,0 +1,87 @@
+package at.ac.tuwien.damap.conversion;
+
+import at.ac.tuwien.damap.enums.ETemplateType;
+import lombok.Value;
+import lombok.extern.jbosslog.JBossLog;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+
+import javax.enterprise.context.ApplicationScoped;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the normalised (runs merged around placeholders) bytes of every export template,
+ * so the expensive formatting pass only runs once per template file.
+ * Each export gets its own document parsed from these bytes and may modify it freely.
+ * A template is compiled again as soon as the {@link TemplateFileBrokerService} supplies a different file.
+ */
+@ApplicationScoped
+@JBossLog
+public class CompiledTemplateCache {
+
+    private final Map<ETemplateType, CompiledTemplate> templates = new ConcurrentHashMap<>();
+
+    @FunctionalInterface
+    public interface TemplateCompiler {
+        XWPFDocument compile(InputStream template) throws Exception;
+    }
+
+    /**
+     * Returns a fresh copy of the compiled template.
+     *
+     * @param type     template type, used as cache key
+     * @param template the template file as supplied by the {@link TemplateFileBrokerService}, will be closed
+     * @param compiler parses and normalises the template, only called if the template is not cached yet or changed
+     * @return a new document, independent of any other export
+     * @throws Exception if the template could not be read or compiled
+     */
+    public XWPFDocument getDocument(ETemplateType type, InputStream template, TemplateCompiler compiler)
+            throws Exception {
+        byte[] source;
+        try (template) {
+            source = template.readAllBytes();
+        }
+        byte[] checksum = checksum(source);
+
+        CompiledTemplate compiled = templates.get(type);
+        if (compiled == null || !Arrays.equals(compiled.getChecksum(), checksum)) {
+            log.info("Compiling template " + type);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(source.length);
+            try (XWPFDocument document = compiler.compile(new ByteArrayInputStream(source))) {
+                document.write(out);
+            }
+            compiled = new CompiledTemplate(checksum, out.toByteArray());
+            templates.put(type, compiled);
+        }
+        return new XWPFDocument(new ByteArrayInputStream(compiled.getContent()));
+    }
+
+    public void invalidate(ETemplateType type) {
+        templates.remove(type);
+    }
+
+    public void invalidateAll() {
+        templates.clear();
+    }
+
+    static byte[] checksum(byte[] content) throws IOException {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(content);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+    }
+
+    @Value
+    private static class CompiledTemplate {
+        byte[] checksum;
+        byte[] content;
+    }
+}
@@ -1,12 +1,13 @@
 package at.ac.tuwien.damap.conversion;
 
+import at.ac.tuwien.damap.enums.ETemplateType;
 import lombok.extern.jbosslog.JBossLog;
 import org.apache.poi.xwpf.usermodel.*;
 
-import javax.enterprise.context.RequestScoped;
+import javax.enterprise.context.Dependent;
 import java.util.*;
 
-@RequestScoped
+@Dependent
 @JBossLog
 public class ExportFWFTemplate extends AbstractTemplateExportScienceEuropeComponents {
 
@@ -20,7 +21,7 @@ public class ExportFWFTemplate extends AbstractTemplateExportScienceEuropeCompon
         prop = templateFileBrokerService.getFWFTemplateResource();
         XWPFDocument document = null;
         try {
-            document = loadTemplate(templateFileBrokerService.loadFWFTemplate(), startChar, endChar);
+            document = loadTemplate(ETemplateType.FWF, templateFileBrokerService.loadFWFTemplate(), startChar, endChar);
         } catch (Exception e) {
             log.error("Template file not found!");
             return null;
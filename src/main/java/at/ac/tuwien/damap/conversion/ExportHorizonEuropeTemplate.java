@@ -3,7 +3,7 @@ package at.ac.tuwien.damap.conversion;
 import java.util.ArrayList;
 import java.util.List;
 
-import javax.enterprise.context.RequestScoped;
+import javax.enterprise.context.Dependent;
 
 import org.apache.poi.xwpf.usermodel.XWPFDocument;
 import org.apache.poi.xwpf.usermodel.XWPFTable;
@@ -13,9 +13,10 @@ import at.ac.tuwien.damap.domain.Dataset;
 import at.ac.tuwien.damap.domain.Distribution;
 import at.ac.tuwien.damap.domain.Repository;
 import at.ac.tuwien.damap.enums.EContributorRole;
+import at.ac.tuwien.damap.enums.ETemplateType;
 import lombok.extern.jbosslog.JBossLog;
 
-@RequestScoped
+@Dependent
 @JBossLog
 public class ExportHorizonEuropeTemplate extends AbstractTemplateExportScienceEuropeComponents {
     public XWPFDocument exportTemplate(long dmpId) {
@@ -28,7 +29,7 @@ public class ExportHorizonEuropeTemplate extends AbstractTemplateExportScienceEu
         prop = templateFileBrokerService.getHorizonEuropeTemplateResource();
         XWPFDocument document = null;
         try {
-            document = loadTemplate(templateFileBrokerService.loadHorizonEuropeTemplate(), startChar, endChar);
+            document = loadTemplate(ETemplateType.HORIZON_EUROPE, templateFileBrokerService.loadHorizonEuropeTemplate(), startChar, endChar);
         } catch (Exception e) {
             log.error("Template file not found!");
             return null;
@@ -1,11 +1,12 @@
 package at.ac.tuwien.damap.conversion;
 
+import at.ac.tuwien.damap.enums.ETemplateType;
 import lombok.extern.jbosslog.JBossLog;
 import org.apache.poi.xwpf.usermodel.*;
 
-import javax.enterprise.context.RequestScoped;
+import javax.enterprise.context.Dependent;
 
-@RequestScoped
+@Dependent
 @JBossLog
 public class ExportScienceEuropeTemplate extends AbstractTemplateExportScienceEuropeComponents {
 
@@ -19,7 +20,7 @@ public class ExportScienceEuropeTemplate extends AbstractTemplateExportScienceEu
         prop = templateFileBrokerService.getScienceEuropeTemplateResource();
         XWPFDocument document = null;
         try {
-            document = loadTemplate(templateFileBrokerService.loadScienceEuropeTemplate(), startChar, endChar);
+            document = loadTemplate(ETemplateType.SCIENCE_EUROPE, templateFileBrokerService.loadScienceEuropeTemplate(), startChar, endChar);
         } catch (Exception e) {
             log.error("Template file not found!");
             return null;
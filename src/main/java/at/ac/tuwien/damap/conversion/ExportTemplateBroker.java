@@ -9,22 +9,26 @@ import lombok.extern.jbosslog.JBossLog;
 import org.apache.poi.xwpf.usermodel.XWPFDocument;
 
 import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.inject.Instance;
 import javax.inject.Inject;
+import java.util.function.Function;
 
 @ApplicationScoped
 @JBossLog
 public class ExportTemplateBroker {
 
     private final DmpService dmpService;
-    private final ExportScienceEuropeTemplate exportScienceEuropeTemplate;
-    private final ExportFWFTemplate exportFWFTemplate;
-    private final ExportHorizonEuropeTemplate exportHorizonEuropeTemplate;
+    // The export classes keep the state of a single export, so every export gets its own instance.
+    // This keeps exports independent of each other, also within one request or on worker threads.
+    private final Instance<ExportScienceEuropeTemplate> exportScienceEuropeTemplate;
+    private final Instance<ExportFWFTemplate> exportFWFTemplate;
+    private final Instance<ExportHorizonEuropeTemplate> exportHorizonEuropeTemplate;
 
     private final TemplateSelectorServiceImpl templateSelectorService;
 
     @Inject
-    public ExportTemplateBroker(DmpService dmpService, ExportScienceEuropeTemplate exportScienceEuropeTemplate,
-            ExportFWFTemplate exportFWFTemplate, ExportHorizonEuropeTemplate exportHorizonEuropeTemplate,
+    public ExportTemplateBroker(DmpService dmpService, Instance<ExportScienceEuropeTemplate> exportScienceEuropeTemplate,
+            Instance<ExportFWFTemplate> exportFWFTemplate, Instance<ExportHorizonEuropeTemplate> exportHorizonEuropeTemplate,
                                 TemplateSelectorServiceImpl templateSelectorService) {
         this.dmpService = dmpService;
         this.exportScienceEuropeTemplate = exportScienceEuropeTemplate;
@@ -41,18 +45,31 @@ public class ExportTemplateBroker {
      * @return
      */
     public XWPFDocument exportTemplate(long dmpId) {
-        return exportTemplateByType(dmpId, templateSelectorService.selectTemplate(dmpService.getDmpById(dmpId)));
+        return exportTemplateByType(dmpId, selectTemplate(dmpId));
+    }
+
+    public ETemplateType selectTemplate(long dmpId) {
+        return templateSelectorService.selectTemplate(dmpService.getDmpById(dmpId));
     }
 
     public XWPFDocument exportTemplateByType(long dmpId, ETemplateType type) {
         switch (type) {
             case FWF:
-                return exportFWFTemplate.exportTemplate(dmpId);
+                return export(exportFWFTemplate, template -> template.exportTemplate(dmpId));
             case HORIZON_EUROPE:
-                return exportHorizonEuropeTemplate.exportTemplate(dmpId);
+                return export(exportHorizonEuropeTemplate, template -> template.exportTemplate(dmpId));
             case SCIENCE_EUROPE:
             default:
-                return exportScienceEuropeTemplate.exportTemplate(dmpId);
+                return export(exportScienceEuropeTemplate, template -> template.exportTemplate(dmpId));
+        }
+    }
+
+    private <T> XWPFDocument export(Instance<T> templates, Function<T, XWPFDocument> export) {
+        T template = templates.get();
+        try {
+            return export.apply(template);
+        } finally {
+            templates.destroy(template);
         }
     }
 }
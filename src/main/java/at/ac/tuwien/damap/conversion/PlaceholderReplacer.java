@@ -0,0 +1,98 @@
+package at.ac.tuwien.damap.conversion;
+
+import lombok.Value;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Replaces the placeholders of a replacement map within a text in a single pass.
+ * All placeholders are stored in a trie, so a text is scanned once, independent of the number of placeholders.
+ * Where several placeholders match at the same position, the longest one wins.
+ */
+class PlaceholderReplacer {
+
+    private final Node root = new Node();
+    private final Map<String, String> replacements;
+
+    PlaceholderReplacer(Map<String, String> replacements) {
+        this.replacements = replacements;
+        for (String placeholder : replacements.keySet()) {
+            if (placeholder == null || placeholder.isEmpty()) {
+                continue;
+            }
+            Node node = root;
+            for (int i = 0; i < placeholder.length(); i++) {
+                node = node.children.computeIfAbsent(placeholder.charAt(i), c -> new Node());
+            }
+            node.placeholder = placeholder;
+        }
+    }
+
+    /**
+     * Finds the next placeholder in the text.
+     *
+     * @param text
+     * @param from index to start searching from
+     * @return the first match at or after from, null if there is none
+     */
+    Match find(CharSequence text, int from) {
+        for (int start = from; start < text.length(); start++) {
+            Node node = root;
+            String placeholder = null;
+            int end = start;
+            for (int i = start; i < text.length(); i++) {
+                node = node.children.get(text.charAt(i));
+                if (node == null) {
+                    break;
+                }
+                if (node.placeholder != null) {
+                    placeholder = node.placeholder;
+                    end = i + 1;
+                }
+            }
+            if (placeholder != null) {
+                String value = replacements.get(placeholder);
+                return new Match(start, end, placeholder, value == null ? "" : value);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Replaces all placeholders in the text with their values.
+     *
+     * @param text
+     * @return the replaced text, the same instance if nothing was replaced
+     */
+    String replace(String text) {
+        if (text == null) {
+            return null;
+        }
+        Match match = find(text, 0);
+        if (match == null) {
+            return text;
+        }
+        StringBuilder sb = new StringBuilder(text.length() + 32);
+        int last = 0;
+        while (match != null) {
+            sb.append(text, last, match.getStart()).append(match.getValue());
+            last = match.getEnd();
+            match = find(text, last);
+        }
+        return sb.append(text, last, text.length()).toString();
+    }
+
+    @Value
+    static class Match {
+        int start;
+        int end;
+        String placeholder;
+        String value;
+    }
+
+    private static class Node {
+        private final Map<Character, Node> children = new HashMap<>(4);
+        private String placeholder;
+    }
+}
@@ -0,0 +1,218 @@
+package at.ac.tuwien.damap.conversion;
+
+import at.ac.tuwien.damap.enums.ETemplateType;
+import at.ac.tuwien.damap.repo.DmpRepo;
+import lombok.Value;
+import lombok.extern.jbosslog.JBossLog;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.ws.rs.NotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Keeps rendered DMP documents on local disk, so repeated downloads of an unchanged DMP skip the export.
+ * Documents are addressed by DMP id, DMP version, template type and template checksum.
+ * The DMP version changes with every update of the plan, so entries are only evicted (least recently used first)
+ * once the configured size is exceeded. Changes bypassing the version, like the GDPR anonymisation, have to delete
+ * the documents with {@link #invalidateAll()}.
+ */
+@ApplicationScoped
+@JBossLog
+public class RenderedDocumentCache {
+
+    @ConfigProperty(name = "damap.export.cache.max-size", defaultValue = "104857600")
+    long maxSize;
+
+    @Inject
+    DmpRepo dmpRepo;
+
+    @Inject
+    TemplateFileBrokerService templateFileBrokerService;
+
+    private final Map<String, RenderedDocument> documents = new LinkedHashMap<>(16, 0.75f, true);
+    private long size = 0;
+    // part of every key, keys computed before the last invalidation are not cached anymore
+    private long generation = 0;
+    private Path directory;
+
+    @PostConstruct
+    void init() throws IOException {
+        directory = Files.createTempDirectory("damap-documents-");
+    }
+
+    @PreDestroy
+    void shutdown() {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(RenderedDocumentCache::delete);
+        } catch (IOException e) {
+            log.warn("Could not delete document cache " + directory, e);
+        }
+    }
+
+    /**
+     * Computes the cache key of a DMP document, without rendering it.
+     *
+     * @param dmpId the DMP's id
+     * @param type  the template to render the DMP with, or null for the template selected for the DMP. The selection
+     *              only depends on the DMP, so the key does not need the DMP to be loaded.
+     * @return the key, which is also used as entity tag
+     * @throws NotFoundException if the DMP does not exist
+     */
+    public String getKey(long dmpId, ETemplateType type) throws IOException {
+        Long version = dmpRepo.getVersion(dmpId);
+        if (version == null) {
+            throw new NotFoundException("DMP with id " + dmpId + " not found.");
+        }
+        StringBuilder key = new StringBuilder(dmpId + "_" + version + "_" + (type != null ? type : "SELECTED"));
+        for (ETemplateType template : type != null ? new ETemplateType[]{type} : ETemplateType.values()) {
+            try (InputStream templateFile = loadTemplate(template)) {
+                key.append('_').append(new BigInteger(1,
+                        CompiledTemplateCache.checksum(templateFile.readAllBytes())).toString(16));
+            }
+        }
+        return getGeneration() + "-" + new BigInteger(1,
+                CompiledTemplateCache.checksum(key.toString().getBytes(StandardCharsets.UTF_8))).toString(16);
+    }
+
+    /**
+     * @param key as returned by {@link #getKey}
+     * @return a channel to read the cached document, which the caller has to close, or null on a cache miss
+     */
+    public synchronized FileChannel open(String key) {
+        RenderedDocument document = documents.get(key);
+        if (document == null) {
+            return null;
+        }
+        try {
+            return FileChannel.open(document.getFile(), StandardOpenOption.READ);
+        } catch (IOException e) {
+            log.warn("Cached document " + document.getFile() + " is not readable", e);
+            remove(key);
+            return null;
+        }
+    }
+
+    /**
+     * Writes the document to the cache and closes it.
+     *
+     * @param key      as returned by {@link #getKey}
+     * @param document the rendered document
+     * @return a channel to read the cached document, which the caller has to close
+     */
+    public FileChannel put(String key, XWPFDocument document) throws IOException {
+        Path file = Files.createTempFile(directory, "document-", ".docx");
+        try (document; OutputStream os = Files.newOutputStream(file)) {
+            document.write(os);
+        } catch (IOException e) {
+            delete(file);
+            throw e;
+        }
+        RenderedDocument renderedDocument = new RenderedDocument(key, file, Files.size(file));
+
+        synchronized (this) {
+            if (!key.startsWith(generation + "-")) {
+                // rendered from data read before an invalidation, only the caller may read it
+                FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+                delete(file);
+                return channel;
+            }
+            remove(key);
+            documents.put(key, renderedDocument);
+            size += renderedDocument.getSize();
+            Iterator<RenderedDocument> eldest = documents.values().iterator();
+            while (size > maxSize && eldest.hasNext()) {
+                RenderedDocument evicted = eldest.next();
+                if (evicted == renderedDocument) {
+                    break;
+                }
+                eldest.remove();
+                size -= evicted.getSize();
+                delete(evicted.getFile());
+            }
+            return FileChannel.open(file, StandardOpenOption.READ);
+        }
+    }
+
+    /**
+     * Deletes all cached documents. Documents rendered from data read before this call are not cached.
+     */
+    public synchronized void invalidateAll() {
+        generation++;
+        new ArrayList<>(documents.keySet()).forEach(this::remove);
+    }
+
+    /**
+     * Streams a cached document and closes the channel. Uses {@link FileChannel#transferTo}, which lets the OS
+     * copy the file without passing it through the heap where the target channel supports it.
+     */
+    public static void transfer(FileChannel channel, OutputStream os) throws IOException {
+        try (channel) {
+            WritableByteChannel target = Channels.newChannel(os);
+            long position = 0;
+            long fileSize = channel.size();
+            while (position < fileSize) {
+                position += channel.transferTo(position, fileSize - position, target);
+            }
+        }
+    }
+
+    private InputStream loadTemplate(ETemplateType type) {
+        switch (type) {
+            case FWF:
+                return templateFileBrokerService.loadFWFTemplate();
+            case HORIZON_EUROPE:
+                return templateFileBrokerService.loadHorizonEuropeTemplate();
+            case SCIENCE_EUROPE:
+            default:
+                return templateFileBrokerService.loadScienceEuropeTemplate();
+        }
+    }
+
+    private synchronized long getGeneration() {
+        return generation;
+    }
+
+    private void remove(String key) {
+        RenderedDocument removed = documents.remove(key);
+        if (removed != null) {
+            size -= removed.getSize();
+            delete(removed.getFile());
+        }
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete cached document " + file, e);
+        }
+    }
+
+    @Value
+    private static class RenderedDocument {
+        String key;
+        Path file;
+        long size;
+    }
+}
@@ -0,0 +1,47 @@
+package at.ac.tuwien.damap.domain;
+
+import at.ac.tuwien.damap.enums.EEnrichmentStatus;
+import at.ac.tuwien.damap.enums.EEnrichmentType;
+import io.quarkus.hibernate.orm.panache.PanacheEntity;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import javax.persistence.*;
+import java.util.Date;
+
+/**
+ * Outbox entry for enriching a DMP with data of a remote system after it was saved.
+ * Written in the transaction saving the DMP and removed once the enrichment was applied.
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+@Entity
+@Table(name = "dmp_enrichment_task")
+public class DmpEnrichmentTask extends PanacheEntity {
+
+    @Column(name = "dmp_id", nullable = false)
+    private Long dmpId;
+
+    // contributor to enrich, only set for ORCID_CONTRIBUTOR
+    @Column(name = "contributor_id")
+    private Long contributorId;
+
+    @Enumerated(EnumType.STRING)
+    private EEnrichmentType type;
+
+    @Enumerated(EnumType.STRING)
+    private EEnrichmentStatus status;
+
+    private int attempts;
+
+    // earliest time of the next attempt, for a running task the end of its lease
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "next_attempt")
+    private Date nextAttempt;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date created;
+
+    @Column(name = "last_error")
+    private String lastError;
+}
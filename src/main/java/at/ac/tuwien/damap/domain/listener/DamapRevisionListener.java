@@ -1,7 +1,9 @@
 package at.ac.tuwien.damap.domain.listener;
 
 import at.ac.tuwien.damap.domain.DamapRevisionEntity;
+import at.ac.tuwien.damap.security.RevisionEditor;
 import at.ac.tuwien.damap.security.SecurityService;
+import io.quarkus.arc.Arc;
 import lombok.extern.jbosslog.JBossLog;
 import org.hibernate.envers.RevisionListener;
 
@@ -14,6 +16,15 @@ public class DamapRevisionListener implements RevisionListener {
     public void newRevision(Object revisionEntity) {
         if (revisionEntity instanceof DamapRevisionEntity) {
 
+            // background jobs record themselves as editor
+            if (Arc.container().requestContext().isActive()) {
+                final String editor = CDI.current().select(RevisionEditor.class).get().getName();
+                if (editor != null) {
+                    ((DamapRevisionEntity) revisionEntity).setChangedBy(editor);
+                    return;
+                }
+            }
+
             final String userId = CDI.current().select(SecurityService.class).get().getUserId();
             final String username = CDI.current().select(SecurityService.class).get().getUserName();
             ((DamapRevisionEntity) revisionEntity).setChangedById(userId);
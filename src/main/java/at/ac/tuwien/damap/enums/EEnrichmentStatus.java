@@ -0,0 +1,20 @@
+package at.ac.tuwien.damap.enums;
+
+public enum EEnrichmentStatus {
+
+    PENDING("PENDING"),
+    RUNNING("RUNNING"),
+    DONE("DONE"),
+    FAILED("FAILED");
+
+    private final String status;
+
+    EEnrichmentStatus(String status) {
+        this.status = status;
+    }
+
+    @Override
+    public String toString() {
+        return status;
+    }
+}
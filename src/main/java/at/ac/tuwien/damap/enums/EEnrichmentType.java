@@ -0,0 +1,18 @@
+package at.ac.tuwien.damap.enums;
+
+public enum EEnrichmentType {
+
+    ORCID_CONTRIBUTOR("ORCID_CONTRIBUTOR"),
+    PROJECT("PROJECT");
+
+    private final String type;
+
+    EEnrichmentType(String type) {
+        this.type = type;
+    }
+
+    @Override
+    public String toString() {
+        return type;
+    }
+}
@@ -0,0 +1,20 @@
+package at.ac.tuwien.damap.enums;
+
+public enum EExportJobStatus {
+
+    QUEUED("QUEUED"),
+    RUNNING("RUNNING"),
+    DONE("DONE"),
+    FAILED("FAILED");
+
+    private final String status;
+
+    EExportJobStatus(String status) {
+        this.status = status;
+    }
+
+    @Override
+    public String toString() {
+        return status;
+    }
+}
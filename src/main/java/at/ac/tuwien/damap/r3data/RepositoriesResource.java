@@ -16,6 +16,7 @@ import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.core.UriInfo;
 import java.util.List;
+import java.util.Map;
 
 @Path("/api/repositories")
 @Authenticated
@@ -43,7 +44,7 @@ public class RepositoriesResource {
     @Path("/{id}")
     public RepositoryDetails getById(@PathParam String id) {
         log.info("Get repository with id: " + id);
-        return RepositoryMapper.mapToRepositoryDetails(repositoriesService.getById(id), id);
+        return RepositoryMapper.mapToRepositoryDetails(repositoriesService.getById(id));
     }
 
     @GET
@@ -54,4 +55,11 @@ public class RepositoriesResource {
         return repositoriesService.search(params);
     }
 
+    @GET
+    @Path("/search/facets")
+    public Map<String, Map<String, Integer>> getFacets(@Context UriInfo uriInfo) {
+        log.info("Get repository facets: " + uriInfo.getQueryParameters());
+        return repositoriesService.getFacets(uriInfo.getQueryParameters());
+    }
+
 }
@@ -1,19 +1,38 @@
 package at.ac.tuwien.damap.r3data;
 
 import at.ac.tuwien.damap.r3data.dto.RepositoryDetails;
+import at.ac.tuwien.damap.r3data.dto.RepositoryRecord;
 import at.ac.tuwien.damap.r3data.mapper.RepositoryMapper;
 import generated.Repository;
-import io.quarkus.cache.CacheResult;
+import io.quarkus.runtime.StartupEvent;
 import lombok.extern.jbosslog.JBossLog;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.eclipse.microprofile.rest.client.inject.RestClient;
-import org.re3data.schema._2_2.Re3Data;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
 import javax.inject.Inject;
+import javax.ws.rs.ServiceUnavailableException;
 import javax.ws.rs.core.MultivaluedMap;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @JBossLog
 @ApplicationScoped
@@ -23,36 +42,113 @@ public class RepositoriesService {
     @RestClient
     RepositoriesRemoteResource repositoriesRemoteResource;
 
+    @Inject
+    RepositoryMirror repositoryMirror;
+
+    @Inject
+    RepositorySearchIndex repositorySearchIndex;
+
     @ConfigProperty(name = "damap.repositories.recommendation")
     String[] repositoriesRecommendation;
 
-    @CacheResult(cacheName = "repositories")
+    @ConfigProperty(name = "damap.repositories.recommendation-ttl", defaultValue = "P1D")
+    Duration recommendationTtl;
+
+    @ConfigProperty(name = "damap.repositories.recommendation-timeout", defaultValue = "PT2S")
+    Duration recommendationTimeout;
+
+    @ConfigProperty(name = "damap.repositories.lookup-threads", defaultValue = "8")
+    int lookupThreads;
+
+    static final Duration MIN_BACKOFF = Duration.ofMinutes(1);
+    static final Duration MAX_BACKOFF = Duration.ofHours(1);
+
+    private final Map<String, RecommendedRepository> recommendedRepositories = new ConcurrentHashMap<>();
+    private ExecutorService lookupExecutor;
+
+    @PostConstruct
+    void init() {
+        AtomicInteger threadCount = new AtomicInteger();
+        lookupExecutor = Executors.newFixedThreadPool(lookupThreads, runnable -> {
+            Thread thread = new Thread(runnable, "damap-re3data-lookup-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        lookupExecutor.shutdownNow();
+    }
+
+    void onStart(@Observes StartupEvent event) {
+        getRecommendedEntries();
+    }
+
     public List<Repository> getAll() {
-        return repositoriesRemoteResource.getAll();
+        return repositoryMirror.getAll();
     }
 
-    @CacheResult(cacheName = "recommendedRepositories")
+    /**
+     * Returns the recommended repositories in the configured order. Every repository is resolved on its own:
+     * resolved ones are returned right away and refreshed in the background once they are older than
+     * damap.repositories.recommendation-ttl. Repositories never resolved before are resolved concurrently,
+     * waiting at most damap.repositories.recommendation-timeout for them. A repository that can not be resolved
+     * is left out and retried with exponential backoff.
+     */
     public List<RepositoryDetails> getRecommended() {
-        List<RepositoryDetails> recommendedRepositories = new ArrayList<>();
-        for (String id : repositoriesRecommendation) {
-            if (id.startsWith("r3d")) {
-                try {
-                    Re3Data repo = this.getById(id);
-                    recommendedRepositories.add(RepositoryMapper.mapToRepositoryDetails(repo, id));
-                } catch (Exception e) {
-                    log.infov("Failed to retrieve repository for ID {0}, error: {1}", id, e.getMessage());
-                }
+        long deadline = System.nanoTime() + recommendationTimeout.toNanos();
+        List<RepositoryDetails> recommended = new ArrayList<>();
+        for (RecommendedRepository entry : getRecommendedEntries()) {
+            RepositoryDetails details = entry.getDetails(deadline);
+            if (details != null) {
+                recommended.add(details);
             }
         }
-        return recommendedRepositories;
+        return recommended;
+    }
+
+    public RepositoryRecord getById(String id) {
+        return repositoryMirror.getById(id);
     }
 
-    @CacheResult(cacheName = "repository")
-    public Re3Data getById(String id) {
-        return repositoriesRemoteResource.getById(id);
+    /**
+     * Resolves several repositories concurrently, at most damap.repositories.lookup-threads at a time.
+     *
+     * @param ids distinct re3data ids
+     * @return the repositories by id
+     */
+    public Map<String, RepositoryRecord> getByIds(Collection<String> ids) {
+        Map<String, RepositoryRecord> repositories = new HashMap<>();
+        if (ids.size() <= 1) {
+            ids.forEach(id -> repositories.put(id, getById(id)));
+            return repositories;
+        }
+
+        Map<String, Future<RepositoryRecord>> lookups = new LinkedHashMap<>();
+        ids.forEach(id -> lookups.put(id, lookupExecutor.submit(() -> getById(id))));
+        try {
+            for (Map.Entry<String, Future<RepositoryRecord>> lookup : lookups.entrySet()) {
+                repositories.put(lookup.getKey(), lookup.getValue().get());
+            }
+        } catch (ExecutionException e) {
+            lookups.values().forEach(lookup -> lookup.cancel(true));
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            lookups.values().forEach(lookup -> lookup.cancel(true));
+            throw new IllegalStateException("Interrupted while resolving re3data repositories", e);
+        }
+        return repositories;
     }
 
     public List<Repository> search(MultivaluedMap<String, String> params) {
+        if (repositorySearchIndex.isAvailable()) {
+            return repositorySearchIndex.search(params);
+        }
+        // the mirror is still being filled, search at re3data until its details are complete
         List<String> subjects = params.get("subjects");
         List<String> contentTypes = params.get("contentTypes");
         List<String> certificates = params.get("certificates");
@@ -73,11 +169,101 @@ public class RepositoriesService {
                 repositoryTypes, institutionTypes, versioning, metadataStandards);
     }
 
+    /**
+     * @param params the same filters as for {@link #search}
+     * @return counts of matching repositories by facet value, by facet name
+     * @throws ServiceUnavailableException as long as the local index is incomplete
+     */
+    public Map<String, Map<String, Integer>> getFacets(MultivaluedMap<String, String> params) {
+        if (!repositorySearchIndex.isAvailable()) {
+            throw new ServiceUnavailableException("Repository index is not available yet.");
+        }
+        return repositorySearchIndex.getFacets(params);
+    }
+
     public String getDescription(String id) {
-        return RepositoryMapper.mapToRepositoryDetails(getById(id), id).getDescription();
+        return RepositoryMapper.mapToRepositoryDetails(getById(id)).getDescription();
     }
 
     public String getRepositoryURL(String id) {
-        return RepositoryMapper.mapToRepositoryDetails(getById(id), id).getRepositoryURL();
+        return RepositoryMapper.mapToRepositoryDetails(getById(id)).getRepositoryURL();
+    }
+
+    // starts resolving the entries that are due, without waiting for them
+    private List<RecommendedRepository> getRecommendedEntries() {
+        Instant now = Instant.now();
+        List<RecommendedRepository> entries = new ArrayList<>();
+        for (String id : repositoriesRecommendation) {
+            if (id.startsWith("r3d")) {
+                RecommendedRepository entry = recommendedRepositories.computeIfAbsent(id, RecommendedRepository::new);
+                entry.resolveIfDue(now);
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+    private class RecommendedRepository {
+        private final String id;
+        private volatile RepositoryDetails details;
+        private Instant resolved;
+        private Instant nextAttempt = Instant.MIN;
+        private int failures = 0;
+        private CompletableFuture<RepositoryDetails> pending;
+
+        RecommendedRepository(String id) {
+            this.id = id;
+        }
+
+        synchronized void resolveIfDue(Instant now) {
+            boolean running = pending != null && !pending.isDone();
+            boolean stale = details == null || resolved.plus(recommendationTtl).isBefore(now);
+            if (running || !stale || now.isBefore(nextAttempt)) {
+                return;
+            }
+            pending = CompletableFuture
+                    .supplyAsync(() -> RepositoryMapper.mapToRepositoryDetails(getById(id)), lookupExecutor)
+                    .whenComplete(this::completed);
+        }
+
+        /**
+         * @return the last resolved details, or if there are none yet, the pending ones once they are resolved
+         * before the deadline
+         */
+        RepositoryDetails getDetails(long deadline) {
+            CompletableFuture<RepositoryDetails> first;
+            synchronized (this) {
+                if (details != null || pending == null) {
+                    return details;
+                }
+                first = pending;
+            }
+            try {
+                return first.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (ExecutionException | TimeoutException e) {
+                return details;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return details;
+            }
+        }
+
+        private synchronized void completed(RepositoryDetails result, Throwable error) {
+            if (error == null) {
+                details = result;
+                resolved = Instant.now();
+                failures = 0;
+                nextAttempt = Instant.MIN;
+                return;
+            }
+            failures++;
+            Duration backoff = MIN_BACKOFF.multipliedBy(1L << Math.min(failures - 1, 20));
+            if (backoff.compareTo(MAX_BACKOFF) > 0) {
+                backoff = MAX_BACKOFF;
+            }
+            nextAttempt = Instant.now().plus(backoff);
+            log.infov("Failed to retrieve repository for ID {0}, retrying in {1}, error: {2}", id, backoff,
+                    error.getMessage());
+        }
     }
 }
@@ -0,0 +1,307 @@
+package at.ac.tuwien.damap.r3data;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import at.ac.tuwien.damap.r3data.dto.RepositoryRecord;
+import generated.Repository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.quarkus.runtime.Startup;
+import io.quarkus.scheduler.Scheduled;
+import lombok.Value;
+import lombok.extern.jbosslog.JBossLog;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.rest.client.inject.RestClient;
+import org.re3data.schema._2_2.Re3Data;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Local mirror of the re3data registry, so repository selection neither waits for nor depends on re3data.org.
+ * The repository list and the details of every repository are kept as files in damap.repositories.mirror.directory,
+ * which should be on a persistent volume. It defaults to damap/re3data in the home directory of the user running
+ * DAMAP, which is /deployments in the container image. A scheduled job refreshes the list and a bounded number of outdated
+ * repository details per run. If re3data can not be reached, the last synced data is served.
+ * Details that have never been synced are fetched on first access and then kept in the mirror.
+ * In memory, only compact {@link RepositoryRecord}s are cached, bounded by their estimated size.
+ * The {@link RepositorySearchIndex} is rebuilt whenever a refresh changes the mirror.
+ */
+@Startup
+@ApplicationScoped
+@JBossLog
+public class RepositoryMirror {
+
+    static final String LIST_FILE = "repositories.json";
+    static final String DETAILS_DIRECTORY = "repository";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final int MAX_FAILURES_PER_REFRESH = 3;
+
+    @Inject
+    @RestClient
+    RepositoriesRemoteResource repositoriesRemoteResource;
+
+    @Inject
+    RepositorySearchIndex repositorySearchIndex;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @ConfigProperty(name = "damap.repositories.mirror.directory", defaultValue = "${user.home}/damap/re3data")
+    String directoryName;
+
+    @ConfigProperty(name = "damap.repositories.mirror.max-age", defaultValue = "P7D")
+    Duration maxAge;
+
+    @ConfigProperty(name = "damap.repositories.mirror.batch-size", defaultValue = "200")
+    int batchSize;
+
+    @ConfigProperty(name = "damap.repositories.mirror.cache-max-weight", defaultValue = "16777216")
+    long cacheMaxWeight;
+
+    private Path directory;
+    private Path detailsDirectory;
+    private JAXBContext jaxbContext;
+    private Cache<String, RepositoryRecord> details;
+    private volatile List<Repository> repositories = List.of();
+    private boolean indexed = false;
+
+    @PostConstruct
+    void init() throws IOException, JAXBException {
+        directory = Paths.get(directoryName);
+        detailsDirectory = Files.createDirectories(directory.resolve(DETAILS_DIRECTORY));
+        jaxbContext = JAXBContext.newInstance(Re3Data.class);
+        details = Caffeine.newBuilder()
+                .maximumWeight(cacheMaxWeight)
+                .weigher((String id, RepositoryRecord record) -> record.estimateSize())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, details, "re3data-repository");
+        Gauge.builder("damap.re3data.cache.weight", details, RepositoryMirror::getWeight)
+                .description("Estimated heap size of the cached re3data repositories")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+
+        Path listFile = directory.resolve(LIST_FILE);
+        if (Files.exists(listFile)) {
+            try (InputStream is = Files.newInputStream(listFile)) {
+                repositories = List.copyOf(MAPPER.readValue(is, new TypeReference<List<Repository>>() {}));
+                log.infov("Loaded {0} repositories from re3data mirror {1}", repositories.size(), directory);
+            } catch (IOException e) {
+                log.warn("Could not read re3data mirror " + listFile + ", it will be synced again", e);
+            }
+        }
+    }
+
+    /**
+     * @return all repositories of the registry, synced on first access if the mirror is still empty
+     */
+    public List<Repository> getAll() {
+        if (repositories.isEmpty()) {
+            refreshList();
+        }
+        return repositories;
+    }
+
+    /**
+     * @param id the re3data id
+     * @return the repository's details, synced on first access if they are not mirrored yet
+     */
+    public RepositoryRecord getById(String id) {
+        return details.get(id, this::load);
+    }
+
+    /**
+     * @return the mirrored repository list, without syncing it
+     */
+    public List<Repository> getMirroredList() {
+        return repositories;
+    }
+
+    /**
+     * @param id the re3data id
+     * @return the complete mirrored record of the repository, without syncing it, or null if it is not mirrored yet
+     */
+    public Re3Data getMirrored(String id) {
+        return read(id);
+    }
+
+    @Scheduled(every = "{damap.repositories.mirror.refresh}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void refresh() {
+        boolean changed = false;
+        try {
+            changed = refreshList();
+        } catch (RuntimeException e) {
+            log.warnv("Could not refresh re3data repository list, keeping {0} mirrored repositories: {1}",
+                    repositories.size(), e.getMessage());
+        }
+        changed |= refreshDetails() > 0;
+        if (changed || !indexed) {
+            repositorySearchIndex.rebuild();
+            indexed = true;
+        }
+    }
+
+    /**
+     * An empty list is not mirrored, re3data never lists no repositories, so it is an outage.
+     *
+     * @return true if the list differs from the mirrored one
+     */
+    synchronized boolean refreshList() {
+        List<Repository> remoteRepositories = repositoriesRemoteResource.getAll();
+        if (remoteRepositories == null || remoteRepositories.isEmpty()) {
+            log.warnv("re3data returned no repositories, keeping {0} mirrored repositories", repositories.size());
+            return false;
+        }
+        try {
+            write(directory.resolve(LIST_FILE), os -> MAPPER.writeValue(os, remoteRepositories));
+        } catch (IOException e) {
+            log.warn("Could not write re3data mirror " + directory, e);
+        }
+        List<Repository> previous = repositories;
+        repositories = List.copyOf(remoteRepositories);
+        return !getIds(previous).equals(getIds(repositories));
+    }
+
+    /**
+     * Syncs the details of at most damap.repositories.mirror.batch-size repositories, those never synced first,
+     * then those last synced longest ago. Stops early when re3data keeps failing.
+     */
+    int refreshDetails() {
+        Instant outdated = Instant.now().minus(maxAge);
+        List<Candidate> candidates = new ArrayList<>();
+        for (Repository repository : repositories) {
+            Instant synced = getLastSynced(repository.getId());
+            if (synced == null || synced.isBefore(outdated)) {
+                candidates.add(new Candidate(repository.getId(), synced == null ? Instant.MIN : synced));
+            }
+        }
+        List<String> ids = candidates.stream()
+                .sorted(Comparator.comparing(Candidate::getSynced))
+                .limit(batchSize)
+                .map(Candidate::getId)
+                .collect(Collectors.toList());
+
+        int failures = 0;
+        int synced = 0;
+        for (String id : ids) {
+            try {
+                details.put(id, RepositoryRecord.of(id, sync(id)));
+                synced++;
+            } catch (RuntimeException e) {
+                log.debugv("Could not sync re3data repository {0}: {1}", id, e.getMessage());
+                if (++failures >= MAX_FAILURES_PER_REFRESH) {
+                    log.warnv("Stopped re3data mirror refresh after {0} failures, keeping mirrored details", failures);
+                    break;
+                }
+            }
+        }
+        if (synced > 0) {
+            log.infov("Synced {0} of {1} outdated re3data repositories", synced, candidates.size());
+        }
+        return synced;
+    }
+
+    private RepositoryRecord load(String id) {
+        Re3Data re3Data = read(id);
+        return RepositoryRecord.of(id, re3Data != null ? re3Data : sync(id));
+    }
+
+    private Re3Data read(String id) {
+        Path file = getFile(id);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (InputStream is = Files.newInputStream(file)) {
+            return (Re3Data) jaxbContext.createUnmarshaller().unmarshal(is);
+        } catch (IOException | JAXBException e) {
+            log.warn("Could not read mirrored re3data repository " + file, e);
+            return null;
+        }
+    }
+
+    private Re3Data sync(String id) {
+        Re3Data re3Data = repositoriesRemoteResource.getById(id);
+        try {
+            write(getFile(id), os -> {
+                try {
+                    jaxbContext.createMarshaller().marshal(re3Data, os);
+                } catch (JAXBException e) {
+                    throw new IOException(e);
+                }
+            });
+        } catch (IOException e) {
+            log.warn("Could not write re3data repository " + id + " to mirror " + directory, e);
+        }
+        return re3Data;
+    }
+
+    // pending writes are applied first, Caffeine updates the weight asynchronously
+    private static long getWeight(Cache<String, RepositoryRecord> cache) {
+        cache.cleanUp();
+        return cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0L)).orElse(0L);
+    }
+
+    private static List<String> getIds(List<Repository> repositories) {
+        return repositories.stream().map(Repository::getId).collect(Collectors.toList());
+    }
+
+    private Instant getLastSynced(String id) {
+        try {
+            return Files.getLastModifiedTime(getFile(id)).toInstant();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private Path getFile(String id) {
+        // re3data ids are of the form r3d123456789, anything else must not escape the mirror directory
+        return detailsDirectory.resolve(id.replaceAll("[^A-Za-z0-9_-]", "_") + ".xml");
+    }
+
+    // write to a temporary file first, so readers never see a partially written file
+    private static void write(Path file, FileWriter writer) throws IOException {
+        Path tmp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream os = Files.newOutputStream(tmp)) {
+                writer.write(os);
+            }
+            Files.setLastModifiedTime(tmp, FileTime.from(Instant.now()));
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    @FunctionalInterface
+    private interface FileWriter {
+        void write(OutputStream os) throws IOException;
+    }
+
+    @Value
+    private static class Candidate {
+        String id;
+        Instant synced;
+    }
+}
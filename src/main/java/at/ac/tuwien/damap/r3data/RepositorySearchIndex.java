@@ -0,0 +1,218 @@
+package at.ac.tuwien.damap.r3data;
+
+import generated.Repository;
+import lombok.extern.jbosslog.JBossLog;
+import org.re3data.schema._2_2.Re3Data;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.ws.rs.core.MultivaluedMap;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * In-memory faceted index over the mirrored re3data repositories, answering the repository search without
+ * a request to re3data. Every facet value holds a bitset of the repositories it applies to. Values of one facet
+ * are combined with OR, different facets with AND, as in the re3data search API.
+ * The index is replaced as a whole whenever the {@link RepositoryMirror} changes.
+ */
+@ApplicationScoped
+@JBossLog
+public class RepositorySearchIndex {
+
+    // share of listed repositories whose details have to be mirrored before the index is used
+    static final double MIN_COVERAGE = 0.99;
+
+    // facets by the name of their search parameter
+    static final Map<String, Function<Re3Data.Repository, Stream<String>>> FACETS = new LinkedHashMap<>();
+
+    static {
+        FACETS.put("subjects", repository -> values(repository.getSubject(), Re3Data.Repository.Subject::getValue));
+        FACETS.put("contentTypes", repository -> values(repository.getContentType(),
+                contentType -> contentType.getValue() == null ? null : contentType.getValue().value()));
+        FACETS.put("countries", repository -> values(repository.getInstitution(),
+                institution -> institution.getInstitutionCountry() == null ? null : institution.getInstitutionCountry().value()));
+        FACETS.put("certificates", repository -> values(repository.getCertificate(), certificate -> certificate.value()));
+        FACETS.put("pidSystems", repository -> values(repository.getPidSystem(), pidSystem -> pidSystem.value()));
+        FACETS.put("aidSystems", repository -> values(repository.getAidSystem(), aidSystem -> aidSystem.value()));
+        FACETS.put("repositoryAccess", repository -> repository.getDatabaseAccess() == null ? Stream.empty() :
+                values(List.of(repository.getDatabaseAccess()), access -> access.getDatabaseAccessType() == null ? null : access.getDatabaseAccessType().value()));
+        FACETS.put("dataAccess", repository -> values(repository.getDataAccess(),
+                access -> access.getDataAccessType() == null ? null : access.getDataAccessType().value()));
+        FACETS.put("dataUpload", repository -> values(repository.getDataUpload(),
+                upload -> upload.getDataUploadType() == null ? null : upload.getDataUploadType().value()));
+        FACETS.put("dataLicenses", repository -> values(repository.getDataLicense(),
+                license -> license.getDataLicenseName() == null ? null : license.getDataLicenseName().value()));
+        FACETS.put("repositoryTypes", repository -> values(repository.getType(), type -> type.value()));
+        FACETS.put("institutionTypes", repository -> values(repository.getInstitution(),
+                institution -> institution.getInstitutionType() == null ? null : institution.getInstitutionType().value()));
+        FACETS.put("versioning", repository -> repository.getVersioning() == null ? Stream.empty() :
+                Stream.of(repository.getVersioning().value()));
+        FACETS.put("metadataStandards", repository -> values(repository.getMetadataStandard(),
+                standard -> standard.getMetadataStandardName() == null || standard.getMetadataStandardName().getValue() == null ?
+                        null : standard.getMetadataStandardName().getValue().value()));
+    }
+
+    @Inject
+    RepositoryMirror repositoryMirror;
+
+    private volatile Index index;
+
+    /**
+     * @return true once the details of (nearly) all listed repositories are mirrored and indexed
+     */
+    public boolean isAvailable() {
+        Index current = index;
+        return current != null && current.isAvailable();
+    }
+
+    /**
+     * @param params facet values by facet name, as accepted by the re3data search API
+     * @return the matching repositories, in the order of the repository list
+     */
+    public List<Repository> search(MultivaluedMap<String, String> params) {
+        return index.search(params);
+    }
+
+    /**
+     * Counts the matching repositories per facet value. The filter of a facet itself is left out when counting
+     * its own values, so the counts tell how many results selecting another value of that facet would add.
+     *
+     * @param params facet values by facet name, as accepted by the re3data search API
+     * @return counts of matching repositories by facet value, by facet name
+     */
+    public Map<String, Map<String, Integer>> getFacets(MultivaluedMap<String, String> params) {
+        return index.getFacets(params);
+    }
+
+    /**
+     * Rebuilds the index from the mirrored repository details. Repositories whose details are not mirrored yet
+     * are not indexed.
+     */
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        List<Repository> repositories = repositoryMirror.getMirroredList();
+        Index built = build(repositories, repositoryMirror::getMirrored);
+        index = built;
+        log.infov("Indexed {0} of {1} re3data repositories in {2} ms", built.indexed, repositories.size(),
+                System.currentTimeMillis() - start);
+    }
+
+    static Index build(List<Repository> repositories, Function<String, Re3Data> details) {
+        Map<String, Map<String, Posting>> postings = new HashMap<>();
+        FACETS.keySet().forEach(facet -> postings.put(facet, new LinkedHashMap<>()));
+
+        int indexed = 0;
+        for (int doc = 0; doc < repositories.size(); doc++) {
+            Re3Data re3Data = details.apply(repositories.get(doc).getId());
+            if (re3Data == null || re3Data.getRepository().isEmpty()) {
+                continue;
+            }
+            indexed++;
+            Re3Data.Repository repository = re3Data.getRepository().get(0);
+            for (Map.Entry<String, Function<Re3Data.Repository, Stream<String>>> facet : FACETS.entrySet()) {
+                Map<String, Posting> facetPostings = postings.get(facet.getKey());
+                int finalDoc = doc;
+                facet.getValue().apply(repository).forEach(value -> {
+                    facetPostings.computeIfAbsent(normalize(value), key -> new Posting(value)).docs.set(finalDoc);
+                    // re3data subjects are prefixed with their DFG classification code, e.g. "1 Humanities and Social Sciences"
+                    if ("subjects".equals(facet.getKey()) && value.matches("\\d+ .+")) {
+                        facetPostings.computeIfAbsent(normalize(value.substring(value.indexOf(' ') + 1)),
+                                key -> new Posting(value, true)).docs.set(finalDoc);
+                    }
+                });
+            }
+        }
+        return new Index(List.copyOf(repositories), postings, indexed);
+    }
+
+    private static <T> Stream<String> values(List<T> items, Function<T, String> value) {
+        return items.stream().filter(Objects::nonNull).map(value).filter(Objects::nonNull);
+    }
+
+    private static String normalize(String value) {
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static class Posting {
+        final String value;
+        final boolean alias;
+        final BitSet docs = new BitSet();
+
+        Posting(String value) {
+            this(value, false);
+        }
+
+        Posting(String value, boolean alias) {
+            this.value = value;
+            this.alias = alias;
+        }
+    }
+
+    static class Index {
+        private final List<Repository> repositories;
+        private final Map<String, Map<String, Posting>> postings;
+        private final int indexed;
+
+        Index(List<Repository> repositories, Map<String, Map<String, Posting>> postings, int indexed) {
+            this.repositories = repositories;
+            this.postings = postings;
+            this.indexed = indexed;
+        }
+
+        boolean isAvailable() {
+            return indexed > 0 && indexed >= repositories.size() * MIN_COVERAGE;
+        }
+
+        List<Repository> search(MultivaluedMap<String, String> params) {
+            BitSet docs = match(params, null);
+            List<Repository> result = new ArrayList<>(docs.cardinality());
+            docs.stream().forEach(doc -> result.add(repositories.get(doc)));
+            return result;
+        }
+
+        Map<String, Map<String, Integer>> getFacets(MultivaluedMap<String, String> params) {
+            Map<String, Map<String, Integer>> facets = new LinkedHashMap<>();
+            for (Map.Entry<String, Map<String, Posting>> facet : postings.entrySet()) {
+                BitSet docs = match(params, facet.getKey());
+                Map<String, Integer> counts = facet.getValue().values().stream()
+                        .filter(posting -> !posting.alias && posting.docs.intersects(docs))
+                        .collect(Collectors.toMap(posting -> posting.value, posting -> {
+                            BitSet matching = (BitSet) posting.docs.clone();
+                            matching.and(docs);
+                            return matching.cardinality();
+                        }, Integer::sum, LinkedHashMap::new));
+                facets.put(facet.getKey(), counts);
+            }
+            return facets;
+        }
+
+        // repositories matching all filters except the one of the excluded facet
+        private BitSet match(MultivaluedMap<String, String> params, String excludedFacet) {
+            BitSet docs = new BitSet(repositories.size());
+            docs.set(0, repositories.size());
+            for (Map.Entry<String, Map<String, Posting>> facet : postings.entrySet()) {
+                List<String> values = params.get(facet.getKey());
+                if (values == null || values.isEmpty() || facet.getKey().equals(excludedFacet)) {
+                    continue;
+                }
+                BitSet facetDocs = new BitSet(repositories.size());
+                values.stream()
+                        .map(value -> facet.getValue().get(normalize(value)))
+                        .filter(Objects::nonNull)
+                        .forEach(posting -> facetDocs.or(posting.docs));
+                docs.and(facetDocs);
+            }
+            return docs;
+        }
+    }
+}
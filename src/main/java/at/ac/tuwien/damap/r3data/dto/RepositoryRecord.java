@@ -0,0 +1,98 @@
+package at.ac.tuwien.damap.r3data.dto;
+
+import lombok.Value;
+import org.re3data.schema._2_2.Certificates;
+import org.re3data.schema._2_2.Languages;
+import org.re3data.schema._2_2.PidSystems;
+import org.re3data.schema._2_2.Re3Data;
+import org.re3data.schema._2_2.Yesno;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Immutable subset of a re3data record, holding only the fields used for repository details and maDMP export.
+ * Kept in memory instead of the complete JAXB object graph. Values taken from re3data vocabularies are the
+ * constants of the generated enums, so they are shared by all records.
+ */
+@Value
+public class RepositoryRecord {
+
+    String id;
+    String name;
+    String repositoryURL;
+    String description;
+    List<String> repositoryIdentifiers;
+    List<String> languages;
+    List<String> contentTypes;
+    List<String> metadataStandards;
+    // first repository type, used as maDMP storage type
+    String type;
+    Yesno versioning;
+    Set<Certificates> certificates;
+    Set<PidSystems> pidSystems;
+
+    public static RepositoryRecord of(String id, Re3Data re3Data) {
+        if (re3Data.getRepository().isEmpty()) {
+            return new RepositoryRecord(id, null, null, null, List.of(), List.of(), List.of(), List.of(), null, null,
+                    Set.of(), Set.of());
+        }
+        Re3Data.Repository repository = re3Data.getRepository().get(0);
+        return new RepositoryRecord(
+                id,
+                repository.getRepositoryName() == null ? null : repository.getRepositoryName().getValue(),
+                repository.getRepositoryURL(),
+                repository.getDescription() == null ? null : repository.getDescription().getValue(),
+                List.copyOf(repository.getRepositoryIdentifier()),
+                values(repository.getRepositoryLanguage(), Languages::value),
+                values(repository.getContentType(),
+                        contentType -> contentType.getValue() == null ? null : contentType.getValue().value()),
+                values(repository.getMetadataStandard(),
+                        standard -> standard.getMetadataStandardName() == null || standard.getMetadataStandardName().getValue() == null ?
+                                null : standard.getMetadataStandardName().getValue().value()),
+                repository.getType().isEmpty() ? null : repository.getType().get(0).value(),
+                repository.getVersioning(),
+                enumSet(repository.getCertificate(), Certificates.class),
+                enumSet(repository.getPidSystem(), PidSystems.class));
+    }
+
+    /**
+     * Estimates the heap size of the record in bytes. Shared enum constants and their values are not counted.
+     */
+    public int estimateSize() {
+        return 64
+                + estimateSize(id) + estimateSize(name) + estimateSize(repositoryURL) + estimateSize(description)
+                + estimateSize(repositoryIdentifiers, true) + estimateSize(languages, false)
+                + estimateSize(contentTypes, false) + estimateSize(metadataStandards, false)
+                + 2 * 32;
+    }
+
+    private static int estimateSize(String value) {
+        // object header, fields and byte array header, one byte per latin-1 character
+        return value == null ? 0 : 40 + value.length();
+    }
+
+    private static int estimateSize(List<String> values, boolean countValues) {
+        int size = 16 + 4 * values.size();
+        if (countValues) {
+            size += values.stream().mapToInt(RepositoryRecord::estimateSize).sum();
+        }
+        return size;
+    }
+
+    private static <T> List<String> values(List<T> items, Function<T, String> value) {
+        return items.stream().filter(Objects::nonNull).map(value).filter(Objects::nonNull)
+                .collect(Collectors.toUnmodifiableList());
+    }
+
+    private static <E extends Enum<E>> Set<E> enumSet(List<E> values, Class<E> type) {
+        EnumSet<E> set = EnumSet.noneOf(type);
+        values.stream().filter(Objects::nonNull).forEach(set::add);
+        return Collections.unmodifiableSet(set);
+    }
+}
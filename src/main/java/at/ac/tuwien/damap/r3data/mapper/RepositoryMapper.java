@@ -1,9 +1,8 @@
 package at.ac.tuwien.damap.r3data.mapper;
 
 import at.ac.tuwien.damap.r3data.dto.RepositoryDetails;
+import at.ac.tuwien.damap.r3data.dto.RepositoryRecord;
 import lombok.experimental.UtilityClass;
-import org.re3data.schema._2_2.Languages;
-import org.re3data.schema._2_2.Re3Data;
 import org.re3data.schema._2_2.Yesno;
 
 import java.util.ArrayList;
@@ -11,43 +10,30 @@ import java.util.ArrayList;
 @UtilityClass
 public class RepositoryMapper {
 
-    public RepositoryDetails mapToRepositoryDetails(Re3Data re3Data, String id) {
+    public RepositoryDetails mapToRepositoryDetails(RepositoryRecord repository) {
         RepositoryDetails repositoryDetails = new RepositoryDetails();
 
-        if (re3Data.getRepository().isEmpty()) {
+        if (repository.getName() == null && repository.getRepositoryURL() == null) {
             return repositoryDetails;
         }
 
-        Re3Data.Repository repo = re3Data.getRepository().get(0);
-        repositoryDetails.setId(id);
-        repositoryDetails.setName(repo.getRepositoryName().getValue());
-        repositoryDetails.setRepositoryURL(repo.getRepositoryURL());
-        repositoryDetails.setDescription(repo.getDescription().getValue());
-        repositoryDetails.setVersioning(mapYesNoToBoolean(repo.getVersioning()));
-        repositoryDetails.setRepositoryIdentifier(repo.getRepositoryIdentifier());
-
-        if (!repo.getRepositoryLanguage().isEmpty()) {
-            ArrayList<String> languages = new ArrayList<>();
-            for (Languages lang : repo.getRepositoryLanguage()) {
-                languages.add(lang.value());
-            }
-            repositoryDetails.setRepositoryLanguages(languages);
+        repositoryDetails.setId(repository.getId());
+        repositoryDetails.setName(repository.getName());
+        repositoryDetails.setRepositoryURL(repository.getRepositoryURL());
+        repositoryDetails.setDescription(repository.getDescription());
+        repositoryDetails.setVersioning(mapYesNoToBoolean(repository.getVersioning()));
+        repositoryDetails.setRepositoryIdentifier(new ArrayList<>(repository.getRepositoryIdentifiers()));
+
+        if (!repository.getLanguages().isEmpty()) {
+            repositoryDetails.setRepositoryLanguages(new ArrayList<>(repository.getLanguages()));
         }
 
-        if (!repo.getMetadataStandard().isEmpty()) {
-            ArrayList<String> metadata = new ArrayList<>();
-            for (Re3Data.Repository.MetadataStandard mds : repo.getMetadataStandard()) {
-                metadata.add(mds.getMetadataStandardName().getValue().value());
-            }
-            repositoryDetails.setMetadataStandards(metadata);
+        if (!repository.getMetadataStandards().isEmpty()) {
+            repositoryDetails.setMetadataStandards(new ArrayList<>(repository.getMetadataStandards()));
         }
 
-        if (!repo.getContentType().isEmpty()) {
-            ArrayList<String> types = new ArrayList<>();
-            for (Re3Data.Repository.ContentType ct : repo.getContentType()) {
-                types.add(ct.getValue().value());
-            }
-            repositoryDetails.setContentTypes(types);
+        if (!repository.getContentTypes().isEmpty()) {
+            repositoryDetails.setContentTypes(new ArrayList<>(repository.getContentTypes()));
         }
 
         return repositoryDetails;
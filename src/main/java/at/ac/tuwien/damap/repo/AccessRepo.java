@@ -2,6 +2,8 @@ package at.ac.tuwien.damap.repo;
 
 import at.ac.tuwien.damap.domain.Access;
 import at.ac.tuwien.damap.domain.Dmp;
+import at.ac.tuwien.damap.enums.EFunctionRole;
+import at.ac.tuwien.damap.rest.dmp.domain.DmpListItemProjection;
 import io.quarkus.hibernate.orm.panache.PanacheRepository;
 import io.quarkus.panache.common.Parameters;
 
@@ -17,6 +19,64 @@ public class AccessRepo implements PanacheRepository<Access> {
                     Parameters.with("universityId", universityId));
     }
 
+    public List<Long> getDmpIdsByUniversityId(String universityId) {
+        return getEntityManager().createQuery(
+                        "select distinct access.dmp.id from Access access" +
+                        " where access.universityId = :universityId order by access.dmp.id", Long.class)
+                .setParameter("universityId", universityId)
+                .getResultList();
+    }
+
+    /**
+     * @param universityId the user's id
+     * @param funderId     identifier of the funder, e.g. a FundRef id
+     * @return ids of the DMPs the user has access to whose project is funded by the funder
+     */
+    public List<Long> getDmpIdsByUniversityIdAndFunder(String universityId, String funderId) {
+        return getEntityManager().createQuery(
+                        "select distinct access.dmp.id from Access access" +
+                        " where access.universityId = :universityId" +
+                        " and access.dmp.project.funding.funderIdentifier.identifier = :funderId" +
+                        " order by access.dmp.id", Long.class)
+                .setParameter("universityId", universityId)
+                .setParameter("funderId", funderId)
+                .getResultList();
+    }
+
+    /**
+     * Returns the roles a user holds on a single DMP, without loading any entity.
+     * Served by the (university_id, dmp_id, role) index on access_management.
+     *
+     * @param universityId the user's university id
+     * @param dmpId        the DMP's id
+     * @return the user's roles, empty if the user has no access
+     */
+    public List<EFunctionRole> getRolesByUniversityIdAndDmpId(String universityId, long dmpId) {
+        return getEntityManager().createQuery(
+                        "select access.role from Access access" +
+                        " where access.universityId = :universityId and access.dmp.id = :dmpId",
+                        EFunctionRole.class)
+                .setParameter("universityId", universityId)
+                .setParameter("dmpId", dmpId)
+                .getResultList();
+    }
+
+    /**
+     * Returns the list view of all DMPs a user has access to, including the user's role, in a single query.
+     *
+     * @param universityId the user's university id
+     * @return list item projections, most recently modified first
+     */
+    public List<DmpListItemProjection> getDmpListItemsByUniversityId(String universityId) {
+        return getEntityManager().createQuery(
+                        DmpRepo.LIST_ITEM_COLUMNS + ", access.role)" +
+                        " from Access access join access.dmp dmp" + DmpRepo.LIST_ITEM_JOINS +
+                        " where access.universityId = :universityId" + DmpRepo.LIST_ITEM_ORDER,
+                        DmpListItemProjection.class)
+                .setParameter("universityId", universityId)
+                .getResultList();
+    }
+
     public List<Access> getAccessByDmp(Dmp dmp) {
         return list("select access from Access access" +
                     " where access.dmp = :dmp ",
@@ -0,0 +1,56 @@
+package at.ac.tuwien.damap.repo;
+
+import at.ac.tuwien.damap.domain.DmpEnrichmentTask;
+import at.ac.tuwien.damap.enums.EEnrichmentStatus;
+import io.quarkus.hibernate.orm.panache.PanacheRepository;
+import io.quarkus.panache.common.Parameters;
+
+import javax.enterprise.context.ApplicationScoped;
+import java.util.Date;
+import java.util.List;
+
+@ApplicationScoped
+public class DmpEnrichmentTaskRepo implements PanacheRepository<DmpEnrichmentTask> {
+
+    /**
+     * @return pending tasks due at the given time and running tasks whose lease expired, oldest first
+     */
+    public List<DmpEnrichmentTask> getDue(Date now, int limit) {
+        return find("status in :statuses and nextAttempt <= :now order by id",
+                Parameters.with("statuses", List.of(EEnrichmentStatus.PENDING, EEnrichmentStatus.RUNNING))
+                        .and("now", now))
+                .page(0, limit)
+                .list();
+    }
+
+    /**
+     * Takes a task for processing until the lease ends. Fails if another worker took the task since it was read.
+     *
+     * @return true if the task was claimed
+     */
+    public boolean claim(DmpEnrichmentTask task, Date leaseEnd) {
+        return update("status = :running, attempts = attempts + 1, nextAttempt = :leaseEnd" +
+                        " where id = :id and attempts = :attempts and status in :statuses",
+                Parameters.with("running", EEnrichmentStatus.RUNNING)
+                        .and("leaseEnd", leaseEnd)
+                        .and("id", task.id)
+                        .and("attempts", task.getAttempts())
+                        .and("statuses", List.of(EEnrichmentStatus.PENDING, EEnrichmentStatus.RUNNING))) == 1;
+    }
+
+    public List<EEnrichmentStatus> getStatusesByDmp(long dmpId) {
+        return getEntityManager()
+                .createQuery("select distinct task.status from DmpEnrichmentTask task where task.dmpId = :dmpId",
+                        EEnrichmentStatus.class)
+                .setParameter("dmpId", dmpId)
+                .getResultList();
+    }
+
+    public long deleteFailedByDmp(long dmpId) {
+        return delete("dmpId = ?1 and status = ?2", dmpId, EEnrichmentStatus.FAILED);
+    }
+
+    public long deleteByDmp(long dmpId) {
+        return delete("dmpId", dmpId);
+    }
+}
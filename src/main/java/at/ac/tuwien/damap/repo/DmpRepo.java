@@ -1,15 +1,114 @@
 package at.ac.tuwien.damap.repo;
 
 import at.ac.tuwien.damap.domain.Dmp;
+import at.ac.tuwien.damap.rest.dmp.domain.DmpListItemProjection;
 import io.quarkus.hibernate.orm.panache.PanacheRepository;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
 
 import javax.enterprise.context.ApplicationScoped;
+import javax.persistence.TypedQuery;
+import java.util.Date;
 import java.util.List;
 
 @ApplicationScoped
 public class DmpRepo implements PanacheRepository<Dmp> {
 
+    private static final String LAST_MODIFIED = "coalesce(dmp.modified, dmp.created)";
+
+    // Columns of a DmpListItemProjection, in constructor order. The access role may be appended by the caller.
+    static final String LIST_ITEM_COLUMNS = "select new at.ac.tuwien.damap.rest.dmp.domain.DmpListItemProjection(" +
+            "dmp.id, dmp.title, dmp.description, dmp.created, dmp.modified, " + LAST_MODIFIED + ", " +
+            "project.id, project.universityId, project.title, project.description, project.start, project.end, " +
+            "funding.id, funding.fundingStatus, funderId.identifier, funderId.identifierType, " +
+            "grantId.identifier, grantId.identifierType, " +
+            "contact.id, contact.universityId, contact.firstName, contact.lastName, contact.mbox, " +
+            "contact.affiliation, contact.contributorRole, " +
+            "contactPersonId.identifier, contactPersonId.identifierType, " +
+            "contactAffiliationId.identifier, contactAffiliationId.identifierType";
+
+    static final String LIST_ITEM_SELECT = LIST_ITEM_COLUMNS + ")";
+
+    static final String LIST_ITEM_JOINS = " left join dmp.project project" +
+            " left join project.funding funding" +
+            " left join funding.funderIdentifier funderId" +
+            " left join funding.grantIdentifier grantId" +
+            " left join dmp.contributorList contact on contact.contact = true" +
+            " left join contact.personIdentifier contactPersonId" +
+            " left join contact.affiliationId contactAffiliationId";
+
+    static final String LIST_ITEM_ORDER = " order by " + LAST_MODIFIED + " desc, dmp.id desc";
+
     public List<Dmp> getAll() {
         return listAll();
     }
+
+    /**
+     * Opens a forward only, read only cursor over all DMPs, ordered by id.
+     * The caller has to close it and should clear the persistence context regularly.
+     *
+     * @param fetchSize number of rows fetched from the database at once
+     * @return the cursor
+     */
+    public ScrollableResults scrollAll(int fetchSize) {
+        return getEntityManager().unwrap(Session.class)
+                .createQuery("select dmp from Dmp dmp order by dmp.id", Dmp.class)
+                .setReadOnly(true)
+                .setFetchSize(fetchSize)
+                .scroll(ScrollMode.FORWARD_ONLY);
+    }
+
+    public List<Long> getAllIds() {
+        return getEntityManager().createQuery("select dmp.id from Dmp dmp order by dmp.id", Long.class)
+                .getResultList();
+    }
+
+    /**
+     * @param funderId identifier of the funder, e.g. a FundRef id
+     * @return ids of the DMPs whose project is funded by the funder
+     */
+    public List<Long> getIdsByFunder(String funderId) {
+        return getEntityManager().createQuery("select dmp.id from Dmp dmp" +
+                        " where dmp.project.funding.funderIdentifier.identifier = :funderId order by dmp.id", Long.class)
+                .setParameter("funderId", funderId)
+                .getResultList();
+    }
+
+    /**
+     * @param id the DMP's id
+     * @return the optimistic locking version of the DMP, which changes on every update, or null if it does not exist
+     */
+    public Long getVersion(long id) {
+        return getEntityManager().createQuery("select dmp.version from Dmp dmp where dmp.id = :id", Long.class)
+                .setParameter("id", id)
+                .getResultStream()
+                .findFirst()
+                .orElse(null);
+    }
+
+    /**
+     * Returns one page of the list view of all DMPs, most recently modified first.
+     * Uses keyset pagination: pass the last modification date and id of the previous page's last element
+     * (or {@code null} for the first page) instead of an offset.
+     *
+     * @param lastModified modification date of the last element of the previous page
+     * @param lastId       id of the last element of the previous page
+     * @param limit        maximum number of rows to return
+     * @return list item projections, ordered by modification date and id
+     */
+    public List<DmpListItemProjection> getAllListItems(Date lastModified, Long lastId, int limit) {
+        boolean seek = lastModified != null && lastId != null;
+        String where = seek ? " where " + LAST_MODIFIED + " < :lastModified" +
+                " or (" + LAST_MODIFIED + " = :lastModified and dmp.id < :lastId)" : "";
+
+        TypedQuery<DmpListItemProjection> query = getEntityManager().createQuery(
+                LIST_ITEM_SELECT + " from Dmp dmp" + LIST_ITEM_JOINS + where + LIST_ITEM_ORDER,
+                DmpListItemProjection.class);
+        if (seek) {
+            query.setParameter("lastModified", lastModified)
+                    .setParameter("lastId", lastId);
+        }
+        return query.setMaxResults(limit).getResultList();
+    }
 }
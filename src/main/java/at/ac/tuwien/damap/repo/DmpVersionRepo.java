@@ -1,6 +1,7 @@
 package at.ac.tuwien.damap.repo;
 
 import at.ac.tuwien.damap.domain.DmpVersion;
+import at.ac.tuwien.damap.rest.version.VersionDO;
 import io.quarkus.hibernate.orm.panache.PanacheRepository;
 import io.quarkus.panache.common.Parameters;
 
@@ -14,6 +15,22 @@ public class DmpVersionRepo implements PanacheRepository<DmpVersion> {
         return listAll();
     }
 
+    /**
+     * Reads the versions of a DMP as DOs with a single query, without loading the version and revision entities.
+     *
+     * @param dmpId the DMP's id
+     * @return the versions, oldest first
+     */
+    public List<VersionDO> getVersionDOsByDmp(long dmpId) {
+        return getEntityManager().createQuery("select new at.ac.tuwien.damap.rest.version.VersionDO(" +
+                        "version.id, version.dmp.id, revision.id, version.versionName, version.versionDate, " +
+                        "revision.changedBy) from DmpVersion version" +
+                        " left join version.revisionEntity revision" +
+                        " where version.dmp.id = :dmpId order by version.id", VersionDO.class)
+                .setParameter("dmpId", dmpId)
+                .getResultList();
+    }
+
     public List<DmpVersion> getAllByDmp(long dmpId) {
         return list("select version from DmpVersion version" +
                         " where version.dmp.id = :dmpId ",
@@ -2,6 +2,9 @@ package at.ac.tuwien.damap.repo;
 
 import at.ac.tuwien.damap.rest.gdpr.domain.GdprResult;
 import at.ac.tuwien.damap.rest.gdpr.domain.HqlQuery;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
@@ -14,16 +17,7 @@ public class GdprRepo {
     @Inject
     EntityManager entityManager;
 
-    public List<GdprResult> getGdprDataByUniversityId(List<HqlQuery> queries, String universityId) {
-
-        List<GdprResult> results = new ArrayList<>();
-        for (HqlQuery query : queries) {
-            results.add(this.getGdprEntityDataByUniversityId(query, universityId));
-        }
-        return results;
-    }
-
-    private GdprResult getGdprEntityDataByUniversityId(HqlQuery query, String universityId) {
+    public GdprResult getGdprEntityDataByUniversityId(HqlQuery query, String universityId) {
 
         GdprResult gdprResult = new GdprResult();
         gdprResult.setEntity(query.getEntityName());
@@ -38,4 +32,36 @@ public class GdprRepo {
         return gdprResult;
     }
 
+    /**
+     * Runs the given update statements in order, with the users passed as {@code :ids} parameter.
+     *
+     * @param statements    native SQL statements, as built by the anonymisation
+     * @param universityIds users to anonymise
+     * @return number of updated rows
+     */
+    public int executeUpdates(List<String> statements, List<String> universityIds) {
+        int updated = 0;
+        for (String statement : statements) {
+            updated += entityManager.createNativeQuery(statement)
+                    .setParameter("ids", universityIds)
+                    .executeUpdate();
+        }
+        return updated;
+    }
+
+    /**
+     * @param query        GDPR query of an entity
+     * @param universityId user to get the data of
+     * @param fetchSize    rows fetched from the database at once
+     * @return cursor over the rows of the entity, each row holding the map of its GDPR fields
+     */
+    public ScrollableResults scrollGdprEntityDataByUniversityId(HqlQuery query, String universityId, int fetchSize) {
+        return entityManager.unwrap(Session.class)
+                .createQuery(query.getHql())
+                .setParameter("id", universityId)
+                .setReadOnly(true)
+                .setFetchSize(fetchSize)
+                .scroll(ScrollMode.FORWARD_ONLY);
+    }
+
 }
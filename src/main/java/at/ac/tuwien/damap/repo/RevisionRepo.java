@@ -0,0 +1,60 @@
+package at.ac.tuwien.damap.repo;
+
+import at.ac.tuwien.damap.rest.version.RevisionDO;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import java.util.List;
+
+/**
+ * Reads revision summaries from revinfo and REVCHANGES, without reconstructing the audited entities.
+ */
+@ApplicationScoped
+public class RevisionRepo {
+
+    // revisions in which the DMP or one of its collections changed
+    private static final String DMP_REVISIONS = "select aud.originalId.REV.id from at.ac.tuwien.damap.domain.Dmp_AUD aud" +
+            " where aud.originalId.id = :dmpId";
+
+    @Inject
+    EntityManager entityManager;
+
+    /**
+     * @param dmpId the DMP's id
+     * @return number, timestamp and editor of the DMP's revisions, oldest first, without modified entity names
+     */
+    public List<RevisionDO> getRevisionsByDmp(long dmpId) {
+        return entityManager.createQuery("select new at.ac.tuwien.damap.rest.version.RevisionDO(" +
+                        "revision.id, revision.timestamp, revision.changedBy) from DamapRevisionEntity revision" +
+                        " where revision.id in (" + DMP_REVISIONS + ") order by revision.id", RevisionDO.class)
+                .setParameter("dmpId", dmpId)
+                .getResultList();
+    }
+
+    /**
+     * @param dmpId the DMP's id
+     * @return pairs of revision number and fully qualified name of an entity changed in it, for all revisions
+     * of the DMP
+     */
+    public List<Object[]> getModifiedEntityNamesByDmp(long dmpId) {
+        return entityManager.createQuery("select revision.id, entityName from DamapRevisionEntity revision" +
+                        " join revision.modifiedEntityNames entityName" +
+                        " where revision.id in (" + DMP_REVISIONS + ")", Object[].class)
+                .setParameter("dmpId", dmpId)
+                .getResultList();
+    }
+
+    /**
+     * @param dmpId    the DMP's id
+     * @param revision the revision number
+     * @return whether the DMP itself was written in the revision
+     */
+    public boolean isDmpRevision(long dmpId, long revision) {
+        return entityManager.createQuery("select count(aud) from at.ac.tuwien.damap.domain.Dmp_AUD aud" +
+                        " where aud.originalId.id = :dmpId and aud.originalId.REV.id = :revision", Long.class)
+                .setParameter("dmpId", dmpId)
+                .setParameter("revision", revision)
+                .getSingleResult() > 0;
+    }
+}
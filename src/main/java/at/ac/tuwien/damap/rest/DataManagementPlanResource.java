@@ -1,5 +1,6 @@
 package at.ac.tuwien.damap.rest;
 
+import at.ac.tuwien.damap.rest.base.ResultList;
 import at.ac.tuwien.damap.rest.dmp.domain.DmpDO;
 import at.ac.tuwien.damap.rest.dmp.domain.DmpListItemDO;
 import at.ac.tuwien.damap.rest.dmp.service.DmpService;
@@ -15,7 +16,10 @@ import javax.annotation.security.RolesAllowed;
 import javax.inject.Inject;
 import javax.validation.Valid;
 import javax.ws.rs.*;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.UriInfo;
 import java.util.List;
 
 @Path("/api/dmps")
@@ -42,9 +46,10 @@ public class DataManagementPlanResource {
     @GET
     @Path("/all")
     @RolesAllowed("Damap Admin")
-    public List<DmpListItemDO> getAll() {
-        log.info("Return all Dmps");
-        return dmpService.getAll();
+    public ResultList<DmpListItemDO> getAll(@Context UriInfo uriInfo) {
+        var queryParams = uriInfo.getQueryParameters();
+        log.info("Return all Dmps for query=" + queryParams.toString());
+        return dmpService.getAll(queryParams);
     }
 
     /*@GET
@@ -101,14 +106,31 @@ public class DataManagementPlanResource {
     @PUT
     @Path("/{id}")
     @Consumes(MediaType.APPLICATION_JSON)
-    public DmpDO updateDmp(@PathParam String id, @Valid DmpDO dmpDO) {
+    public DmpDO updateDmp(@PathParam String id, @HeaderParam(HttpHeaders.IF_MATCH) String ifMatch,
+                           @Valid DmpDO dmpDO) {
         log.info("Update dmp with id: " + id);
         String personId = this.getPersonId();
         long dmpId = Long.parseLong(id);
         if(!accessValidator.canEditDmp(dmpId, personId)){
             throw new ForbiddenException(unauthorizedMessage(dmpId));
         }
-        return dmpService.update(dmpDO);
+        return dmpService.update(dmpDO, getExpectedVersion(ifMatch));
+    }
+
+    // If-Match holds the version of the DO the client read, saves without it are not checked
+    private Long getExpectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String version = ifMatch.trim();
+        if (version.startsWith("W/")) {
+            version = version.substring(2);
+        }
+        try {
+            return Long.parseLong(version.replace("\"", ""));
+        } catch (NumberFormatException e) {
+            throw new BadRequestException("Invalid If-Match header: " + ifMatch);
+        }
     }
 
     @DELETE
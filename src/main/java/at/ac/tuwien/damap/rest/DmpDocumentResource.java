@@ -1,8 +1,17 @@
 package at.ac.tuwien.damap.rest;
 
 import at.ac.tuwien.damap.conversion.ExportTemplateBroker;
+import at.ac.tuwien.damap.conversion.RenderedDocumentCache;
 import at.ac.tuwien.damap.enums.ETemplateType;
 import at.ac.tuwien.damap.rest.dmp.service.DmpService;
+import at.ac.tuwien.damap.repo.AccessRepo;
+import at.ac.tuwien.damap.repo.DmpRepo;
+import at.ac.tuwien.damap.rest.document.domain.BatchExportDO;
+import at.ac.tuwien.damap.rest.document.domain.ExportJobDO;
+import at.ac.tuwien.damap.rest.document.mapper.ExportJobDOMapper;
+import at.ac.tuwien.damap.rest.document.service.BatchExportService;
+import at.ac.tuwien.damap.rest.document.service.ExportJob;
+import at.ac.tuwien.damap.rest.document.service.ExportJobService;
 import at.ac.tuwien.damap.security.SecurityService;
 import at.ac.tuwien.damap.validation.AccessValidator;
 import io.quarkus.security.Authenticated;
@@ -13,10 +22,19 @@ import org.apache.poi.xwpf.usermodel.XWPFDocument;
 
 import javax.inject.Inject;
 import javax.ws.rs.*;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.core.UriInfo;
 import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
 
 @Path("/api/document")
 @Authenticated
@@ -36,9 +54,25 @@ public class DmpDocumentResource {
     @Inject
     DmpService dmpService;
 
+    @Inject
+    ExportJobService exportJobService;
+
+    @Inject
+    RenderedDocumentCache renderedDocumentCache;
+
+    @Inject
+    BatchExportService batchExportService;
+
+    @Inject
+    DmpRepo dmpRepo;
+
+    @Inject
+    AccessRepo accessRepo;
+
     @GET
     @Path("/{dmpId}")
-    public Response exportTemplate(@PathParam("dmpId") long dmpId, @QueryParam("template") ETemplateType template) {
+    public Response exportTemplate(@PathParam("dmpId") long dmpId, @QueryParam("template") ETemplateType template,
+                                   @Context Request request) throws IOException {
         log.info("Return DMP document file for DMP with id=" + dmpId);
 
         String personId = this.getPersonId();
@@ -46,25 +80,116 @@ public class DmpDocumentResource {
             throw new ForbiddenException("Not authorized to access dmp with id " + dmpId);
         }
 
-        String filename = dmpService.getDefaultFileName(dmpId);
+        // the template is only selected when the document is rendered, selecting it loads the whole DMP
+        String key = renderedDocumentCache.getKey(dmpId, template);
+        EntityTag entityTag = new EntityTag(key);
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(entityTag);
+        if (notModified != null) {
+            return notModified.build();
+        }
 
-        XWPFDocument document;
-        if (template != null)
-            document = exportTemplateBroker.exportTemplateByType(dmpId, template);
-        else
-            document = exportTemplateBroker.exportTemplate(dmpId);
-
-        StreamingOutput streamingOutput = new StreamingOutput() {
-            @Override
-            public void write(OutputStream os) throws IOException,
-                    WebApplicationException {
-                document.write(os);
-                document.close();
+        FileChannel document = renderedDocumentCache.open(key);
+        if (document == null) {
+            ETemplateType templateType = template != null ? template : exportTemplateBroker.selectTemplate(dmpId);
+            XWPFDocument exported = exportTemplateBroker.exportTemplateByType(dmpId, templateType);
+            if (exported == null) {
+                throw new InternalServerErrorException("Could not export dmp with id " + dmpId);
             }
-        };
+            document = renderedDocumentCache.put(key, exported);
+        }
+
+        String filename = dmpService.getDefaultFileName(dmpId);
+        FileChannel channel = document;
+        StreamingOutput streamingOutput = os -> RenderedDocumentCache.transfer(channel, os);
 
         return Response.ok(streamingOutput)
+                .tag(entityTag)
                 .header("Content-Disposition", "attachment;filename=" + filename + ".docx")
+                .header("Access-Control-Expose-Headers","Content-Disposition, ETag")
+                .build();
+    }
+
+    @POST
+    @Path("/batch")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces("application/zip")
+    public Response exportBatch(BatchExportDO batchExportDO) {
+        log.info("Return batch export for DMPs " + batchExportDO.getDmpIds());
+
+        String personId = this.getPersonId();
+        List<Long> dmpIds;
+        List<Long> forbidden = new ArrayList<>();
+        String funderId = batchExportDO.getFunderId();
+        if ((batchExportDO.getDmpIds() == null || batchExportDO.getDmpIds().isEmpty())
+            && funderId != null && !funderId.isBlank()) {
+            dmpIds = securityService.isAdmin() ? dmpRepo.getIdsByFunder(funderId)
+                    : accessRepo.getDmpIdsByUniversityIdAndFunder(personId, funderId);
+        } else if (batchExportDO.getDmpIds() == null || batchExportDO.getDmpIds().isEmpty()) {
+            dmpIds = securityService.isAdmin() ? dmpRepo.getAllIds() : accessRepo.getDmpIdsByUniversityId(personId);
+        } else {
+            dmpIds = new ArrayList<>();
+            for (Long dmpId : new LinkedHashSet<>(batchExportDO.getDmpIds())) {
+                if (accessValidator.canExportDmp(dmpId, personId)) {
+                    dmpIds.add(dmpId);
+                } else {
+                    forbidden.add(dmpId);
+                }
+            }
+        }
+        if (dmpIds.size() + forbidden.size() > batchExportService.getMaxSize()) {
+            throw new BadRequestException("A batch export is limited to " + batchExportService.getMaxSize()
+                    + " DMPs, select fewer DMPs or filter them by funder.");
+        }
+
+        StreamingOutput streamingOutput = os -> batchExportService.export(dmpIds, forbidden, batchExportDO.getTemplate(), os);
+
+        return Response.ok(streamingOutput)
+                .header("Content-Disposition", "attachment;filename=DMP_export.zip")
+                .header("Access-Control-Expose-Headers","Content-Disposition")
+                .build();
+    }
+
+    @POST
+    @Path("/{dmpId}/jobs")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response createExportJob(@PathParam("dmpId") long dmpId, @QueryParam("template") ETemplateType template,
+                                    @Context UriInfo uriInfo) {
+        log.info("Create export job for DMP with id=" + dmpId);
+
+        String personId = this.getPersonId();
+        if (!accessValidator.canExportDmp(dmpId, personId)) {
+            throw new ForbiddenException("Not authorized to access dmp with id " + dmpId);
+        }
+
+        ExportJobDO exportJob = ExportJobDOMapper.mapEntityToDO(
+                exportJobService.submit(dmpId, template, personId), new ExportJobDO());
+        return Response.accepted(exportJob)
+                .location(uriInfo.getBaseUriBuilder().path(DmpDocumentResource.class)
+                        .path("jobs").path(exportJob.getId()).build())
+                .build();
+    }
+
+    @GET
+    @Path("/jobs/{jobId}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public ExportJobDO getExportJob(@PathParam("jobId") String jobId) {
+        log.info("Return export job with id=" + jobId);
+        return ExportJobDOMapper.mapEntityToDO(exportJobService.getJob(jobId, this.getPersonId()), new ExportJobDO());
+    }
+
+    @GET
+    @Path("/jobs/{jobId}/file")
+    public Response getExportJobFile(@PathParam("jobId") String jobId) {
+        log.info("Return file of export job with id=" + jobId);
+
+        String personId = this.getPersonId();
+        ExportJob exportJob = exportJobService.getJob(jobId, personId);
+        java.nio.file.Path file = exportJobService.getFile(jobId, personId);
+
+        StreamingOutput streamingOutput = os -> Files.copy(file, os);
+
+        return Response.ok(streamingOutput)
+                .header("Content-Disposition", "attachment;filename=" + exportJob.getFilename() + ".docx")
                 .header("Access-Control-Expose-Headers","Content-Disposition")
                 .build();
     }
@@ -1,18 +1,32 @@
 package at.ac.tuwien.damap.rest;
 
-import at.ac.tuwien.damap.rest.gdpr.domain.GdprResult;
+import at.ac.tuwien.damap.rest.gdpr.domain.AnonymisationDO;
+import at.ac.tuwien.damap.rest.gdpr.domain.AnonymisationJobDO;
+import at.ac.tuwien.damap.rest.gdpr.mapper.AnonymisationJobDOMapper;
+import at.ac.tuwien.damap.rest.gdpr.service.AnonymisationService;
 import at.ac.tuwien.damap.rest.gdpr.service.GdprService;
 import at.ac.tuwien.damap.security.SecurityService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.quarkus.security.Authenticated;
 import io.quarkus.security.AuthenticationFailedException;
 import lombok.extern.jbosslog.JBossLog;
 
+import javax.annotation.security.RolesAllowed;
 import javax.inject.Inject;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
+import javax.ws.rs.POST;
 import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
-import java.util.List;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.core.UriInfo;
 
 @Path("api/gdpr")
 @Authenticated
@@ -26,17 +40,71 @@ public class GdprResource {
     @Inject
     GdprService gdprService;
 
+    @Inject
+    AnonymisationService anonymisationService;
+
+    @Inject
+    ObjectMapper objectMapper;
+
     @GET
-    public List<GdprResult> read() {
+    public Response read() {
         log.info("Get GDPR base data");
-        return this.gdprService.getGdprBaseData(this.getPersonId());
+        return this.stream(this.getPersonId(), false);
     }
 
     @GET
     @Path("extended")
-    public List<GdprResult> readExtended() {
+    public Response readExtended() {
         log.info("Get GDPR extended data");
-        return this.gdprService.getGdprExtendedData(this.getPersonId());
+        return this.stream(this.getPersonId(), true);
+    }
+
+    @GET
+    @Path("export")
+    @Produces("application/zip")
+    public Response export(@QueryParam("extended") @DefaultValue("true") boolean extended) {
+        log.info("Export GDPR data");
+        String personId = this.getPersonId();
+        StreamingOutput streamingOutput = os -> gdprService.export(personId, extended, os);
+        return Response.ok(streamingOutput)
+                .header("Content-Disposition", "attachment;filename=GDPR_export.zip")
+                .header("Access-Control-Expose-Headers","Content-Disposition")
+                .build();
+    }
+
+    @POST
+    @Path("anonymisation")
+    @RolesAllowed("Damap Admin")
+    @Consumes(MediaType.APPLICATION_JSON)
+    public Response createAnonymisationJob(AnonymisationDO anonymisationDO, @Context UriInfo uriInfo) {
+        log.info("Create GDPR anonymisation job");
+        AnonymisationJobDO job = AnonymisationJobDOMapper.mapEntityToDO(
+                anonymisationService.submit(anonymisationDO.getUniversityIds()), new AnonymisationJobDO());
+        return Response.accepted(job)
+                .location(uriInfo.getBaseUriBuilder().path(GdprResource.class)
+                        .path("anonymisation").path(job.getId()).build())
+                .build();
+    }
+
+    @GET
+    @Path("anonymisation/{jobId}")
+    @RolesAllowed("Damap Admin")
+    public AnonymisationJobDO getAnonymisationJob(@PathParam("jobId") String jobId) {
+        log.info("Return GDPR anonymisation job with id=" + jobId);
+        return AnonymisationJobDOMapper.mapEntityToDO(anonymisationService.getJob(jobId), new AnonymisationJobDO());
+    }
+
+    // writes the JSON array of the results entity by entity, instead of collecting all of them first
+    private Response stream(String personId, boolean extended) {
+        StreamingOutput streamingOutput = os -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(os)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+                generator.writeStartArray();
+                gdprService.writeGdprData(personId, extended, result -> objectMapper.writeValue(generator, result));
+                generator.writeEndArray();
+            }
+        };
+        return Response.ok(streamingOutput).build();
     }
 
     private String getPersonId() {
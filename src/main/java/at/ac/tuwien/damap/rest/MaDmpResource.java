@@ -5,18 +5,22 @@ import at.ac.tuwien.damap.rest.madmp.dto.Dmp;
 import at.ac.tuwien.damap.rest.madmp.service.MaDmpService;
 import at.ac.tuwien.damap.security.SecurityService;
 import at.ac.tuwien.damap.validation.AccessValidator;
-import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import io.quarkus.security.Authenticated;
 import io.quarkus.security.AuthenticationFailedException;
 import io.quarkus.security.ForbiddenException;
 import lombok.extern.jbosslog.JBossLog;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.resteasy.annotations.GZIP;
 
+import javax.annotation.security.RolesAllowed;
 import javax.inject.Inject;
 import javax.ws.rs.*;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 
 @Path("/api/madmp")
 @Authenticated
@@ -25,6 +29,13 @@ import javax.ws.rs.core.Response;
 @JBossLog
 public class MaDmpResource {
 
+    // writers are immutable and thread safe, the response stream is closed by the container
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    static final ObjectWriter PRETTY_WRITER = MAPPER.writerWithDefaultPrettyPrinter()
+            .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    static final ObjectWriter COMPACT_WRITER = MAPPER.writer()
+            .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
     @Inject
     SecurityService securityService;
 
@@ -53,7 +64,8 @@ public class MaDmpResource {
 
     @GET
     @Path("/file/{id}")
-    public Response getFileById(@PathParam("id") long id) {
+    @GZIP
+    public Response getFileById(@PathParam("id") long id, @QueryParam("pretty") @DefaultValue("true") boolean pretty) {
         log.info("Return maDMP file for DMP with id: " + id);
         String personId = this.getPersonId();
         if(!accessValidator.canViewDmp(id, personId)){
@@ -62,19 +74,34 @@ public class MaDmpResource {
 
         String filename = dmpService.getDefaultFileName(id);
         Dmp maDMP = maDmpService.getById(id);
-        String prettyMaDMP = maDMP.toString();
-        ObjectMapper mapper = new ObjectMapper();
-        try {
-            prettyMaDMP = mapper.writerWithDefaultPrettyPrinter().writeValueAsString(maDMP);
-        } catch (JsonProcessingException e) {
-            log.error("could not process maDMP with id: " + id + " into String");
-        }
-        Response.ResponseBuilder response = Response.ok(prettyMaDMP);
+        ObjectWriter writer = pretty ? PRETTY_WRITER : COMPACT_WRITER;
+        StreamingOutput streamingOutput = os -> writer.writeValue(os, maDMP);
+
+        Response.ResponseBuilder response = Response.ok(streamingOutput);
         response.header("Content-Disposition", "attachment; filename=" + filename + ".json")
                 .header("Access-Control-Expose-Headers","Content-Disposition");
         return response.build();
     }
 
+    @GET
+    @Path("/export")
+    @RolesAllowed("Damap Admin")
+    @Produces("application/x-ndjson")
+    @GZIP
+    public Response exportAll() {
+        log.info("Return maDMP export of all DMPs");
+
+        StreamingOutput streamingOutput = os -> maDmpService.exportAll(maDMP -> {
+            COMPACT_WRITER.writeValue(os, maDMP);
+            os.write('\n');
+        });
+
+        return Response.ok(streamingOutput)
+                .header("Content-Disposition", "attachment; filename=maDMP_export.ndjson")
+                .header("Access-Control-Expose-Headers","Content-Disposition")
+                .build();
+    }
+
     private String getPersonId() {
         if (securityService == null) {
             throw new AuthenticationFailedException("User ID is missing.");
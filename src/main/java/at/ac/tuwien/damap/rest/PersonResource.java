@@ -1,18 +1,32 @@
 package at.ac.tuwien.damap.rest;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
 import javax.inject.Inject;
 import javax.ws.rs.Consumes;
+import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriInfo;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
 import at.ac.tuwien.damap.rest.base.ResultList;
 import at.ac.tuwien.damap.rest.base.Search;
 import at.ac.tuwien.damap.rest.base.resource.ResourceRead;
 import at.ac.tuwien.damap.rest.base.resource.ResourceSearch;
 import at.ac.tuwien.damap.rest.dmp.domain.ContributorDO;
+import at.ac.tuwien.damap.rest.persons.FederatedPersonSearch;
+import at.ac.tuwien.damap.rest.persons.PersonSearchCache;
 import at.ac.tuwien.damap.rest.persons.PersonService;
+import at.ac.tuwien.damap.security.SecurityService;
 import io.quarkus.security.Authenticated;
 import lombok.extern.jbosslog.JBossLog;
 
@@ -23,9 +37,21 @@ import lombok.extern.jbosslog.JBossLog;
 @JBossLog
 public class PersonResource implements ResourceRead<ContributorDO>, ResourceSearch<ContributorDO> {
 
+    private static final ObjectWriter WRITER = new ObjectMapper().writer()
+            .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
     @Inject
     PersonServiceBroker personServiceBroker;
 
+    @Inject
+    PersonSearchCache personSearchCache;
+
+    @Inject
+    FederatedPersonSearch federatedPersonSearch;
+
+    @Inject
+    SecurityService securityService;
+
     @Override
     public ContributorDO read(String id, UriInfo uriInfo) {
         var queryParams = uriInfo.getQueryParameters();
@@ -51,10 +77,36 @@ public class PersonResource implements ResourceRead<ContributorDO>, ResourceSear
         ResultList<ContributorDO> result = ResultList.fromItemsAndSearch(null, search);
 
         if (searchService != null) {
-            result = searchService.search(queryParams);
+            result = personSearchCache.search(queryParams.getFirst("searchService"), searchService, queryParams,
+                    securityService.getUserId());
         }
 
         return result;
     }
 
+    /**
+     * Searches all configured person services in parallel. Streams one JSON line per service as soon as it
+     * responded, each holding the merged results so far. The last line has complete set to true.
+     */
+    @GET
+    @Path("/federated")
+    @Produces("application/x-ndjson")
+    public Response federatedSearch(@Context UriInfo uriInfo) {
+        var queryParams = uriInfo.getQueryParameters();
+        log.info("Return federated person list for query=" + queryParams.toString());
+        String personId = securityService.getUserId();
+
+        StreamingOutput streamingOutput = os -> federatedPersonSearch.search(queryParams, personId, result -> {
+            try {
+                WRITER.writeValue(os, result);
+                os.write('\n');
+                os.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        return Response.ok(streamingOutput).build();
+    }
+
 }
@@ -9,8 +9,10 @@ import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 import javax.ws.rs.core.MultivaluedMap;
 
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @JBossLog
 @ApplicationScoped
@@ -44,6 +46,13 @@ public class PersonServiceBroker {
         });
     }
 
+    /**
+     * @return the configured person services by their query value, in configuration order
+     */
+    public Map<String, PersonService> getServices() {
+        return Collections.unmodifiableMap(personServices);
+    }
+
     public PersonService getServiceFromQueryParams(MultivaluedMap<String, String> queryParams) {
         return this.getServiceForQueryParam(queryParams.getFirst("searchService"));
     }
@@ -1,5 +1,6 @@
 package at.ac.tuwien.damap.rest;
 
+import at.ac.tuwien.damap.rest.version.RevisionDO;
 import at.ac.tuwien.damap.rest.version.VersionDO;
 import at.ac.tuwien.damap.rest.version.VersionService;
 import at.ac.tuwien.damap.security.SecurityService;
@@ -41,6 +42,18 @@ public class VersionResource {
         return versionService.getDmpVersions(dmpId);
     }
 
+    @GET
+    @Path("/revisions/{id}")
+    public List<RevisionDO> getDmpRevisions(@PathParam String id) {
+        log.debug("Return dmp revisions for dmp with id: " + id);
+        String personId = this.getPersonId();
+        long dmpId = Long.parseLong(id);
+        if(!accessValidator.canViewDmp(dmpId, personId)){
+            throw new ForbiddenException("Not authorized to access dmp with id " + dmpId);
+        }
+        return versionService.getDmpRevisions(dmpId);
+    }
+
     @PUT
     @Consumes(MediaType.APPLICATION_JSON)
     public VersionDO saveVersion(VersionDO versionDO) {
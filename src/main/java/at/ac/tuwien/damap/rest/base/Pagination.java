@@ -12,11 +12,15 @@ public class Pagination {
     Integer numTotalItems;
     boolean hasNext;
     boolean hasPrevious;
+    // Opaque keyset cursors, only used by endpoints that paginate by seeking instead of page numbers.
+    String cursor;
+    String nextCursor;
 
     public static Pagination fromMap(MultivaluedMap<String, String> map) {
         Pagination p = new Pagination();
         p.setPage(map);
         p.setPerPage(map);
+        p.setCursor(map.getFirst("cursor"));
 
         return p;
     }
@@ -40,7 +44,7 @@ public class Pagination {
     }
 
     public void calculateFields() {
-        hasPrevious = page > 1;
+        hasPrevious = page > 1 || cursor != null;
 
         if (numTotalItems != null) {
             numPages = numTotalItems / perPage;
@@ -19,6 +19,8 @@ import java.util.Optional;
 public class DmpDO {
 
     private Long id;
+    // version of the DMP this DO was read from, sent as If-Match to only save over this version
+    private Long version;
     @Size(max = 255)
     private String title;
     @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss.SSSXXX")
@@ -89,6 +91,8 @@ public class DmpDO {
     private List<CostDO> costs = new ArrayList<>();
     @Size(max = 4000)
     private String documentation;
+    // read only, whether remote details are still being added after the last save
+    private EEnrichmentStatus enrichmentStatus;
 
     public ContributorDO getContact() {
         Optional<ContributorDO> contact = contributors.stream().filter(ContributorDO::isContact).findFirst();
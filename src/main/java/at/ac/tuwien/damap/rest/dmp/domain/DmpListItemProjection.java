@@ -0,0 +1,74 @@
+package at.ac.tuwien.damap.rest.dmp.domain;
+
+import at.ac.tuwien.damap.enums.EContributorRole;
+import at.ac.tuwien.damap.enums.EFunctionRole;
+import at.ac.tuwien.damap.enums.EFundingState;
+import at.ac.tuwien.damap.enums.EIdentifierType;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+import java.util.Date;
+
+/**
+ * Flat row of all columns needed to render a {@link DmpListItemDO}.
+ * Instances are created by a JPQL constructor expression, so the field order has to match the select clause
+ * in {@link at.ac.tuwien.damap.repo.DmpRepo}.
+ */
+@Value
+@AllArgsConstructor
+public class DmpListItemProjection {
+
+    Long id;
+    String title;
+    String description;
+    Date created;
+    Date modified;
+    // coalesce(modified, created), used as keyset for pagination
+    Date lastModified;
+
+    Long projectId;
+    String projectUniversityId;
+    String projectTitle;
+    String projectDescription;
+    Date projectStart;
+    Date projectEnd;
+    Long fundingId;
+    EFundingState fundingStatus;
+    String funderIdentifier;
+    EIdentifierType funderIdentifierType;
+    String grantIdentifier;
+    EIdentifierType grantIdentifierType;
+
+    Long contactId;
+    String contactUniversityId;
+    String contactFirstName;
+    String contactLastName;
+    String contactMbox;
+    String contactAffiliation;
+    EContributorRole contactRole;
+    String contactPersonIdentifier;
+    EIdentifierType contactPersonIdentifierType;
+    String contactAffiliationIdentifier;
+    EIdentifierType contactAffiliationIdentifierType;
+
+    // only set when listing the DMPs of a user
+    EFunctionRole accessType;
+
+    public DmpListItemProjection(Long id, String title, String description, Date created, Date modified,
+                                 Date lastModified, Long projectId, String projectUniversityId, String projectTitle,
+                                 String projectDescription, Date projectStart, Date projectEnd, Long fundingId,
+                                 EFundingState fundingStatus, String funderIdentifier,
+                                 EIdentifierType funderIdentifierType, String grantIdentifier,
+                                 EIdentifierType grantIdentifierType, Long contactId, String contactUniversityId,
+                                 String contactFirstName, String contactLastName, String contactMbox,
+                                 String contactAffiliation, EContributorRole contactRole,
+                                 String contactPersonIdentifier, EIdentifierType contactPersonIdentifierType,
+                                 String contactAffiliationIdentifier, EIdentifierType contactAffiliationIdentifierType) {
+        this(id, title, description, created, modified, lastModified, projectId, projectUniversityId, projectTitle,
+                projectDescription, projectStart, projectEnd, fundingId, fundingStatus, funderIdentifier,
+                funderIdentifierType, grantIdentifier, grantIdentifierType, contactId, contactUniversityId,
+                contactFirstName, contactLastName, contactMbox, contactAffiliation, contactRole,
+                contactPersonIdentifier, contactPersonIdentifierType, contactAffiliationIdentifier,
+                contactAffiliationIdentifierType, null);
+    }
+}
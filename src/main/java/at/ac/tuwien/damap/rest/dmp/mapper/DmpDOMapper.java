@@ -20,6 +20,7 @@ public class DmpDOMapper {
 
     public DmpDO mapEntityToDO(Dmp dmp, DmpDO dmpDO) {
         dmpDO.setId(dmp.id);
+        dmpDO.setVersion(dmp.getVersion());
         dmpDO.setTitle(dmp.getTitle());
         dmpDO.setCreated(dmp.getCreated());
         dmpDO.setModified(dmp.getModified());
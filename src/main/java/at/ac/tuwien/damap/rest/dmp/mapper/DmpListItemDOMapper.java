@@ -2,8 +2,12 @@ package at.ac.tuwien.damap.rest.dmp.mapper;
 
 import at.ac.tuwien.damap.domain.Access;
 import at.ac.tuwien.damap.domain.Dmp;
+import at.ac.tuwien.damap.enums.EIdentifierType;
 import at.ac.tuwien.damap.rest.dmp.domain.ContributorDO;
 import at.ac.tuwien.damap.rest.dmp.domain.DmpListItemDO;
+import at.ac.tuwien.damap.rest.dmp.domain.DmpListItemProjection;
+import at.ac.tuwien.damap.rest.dmp.domain.FundingDO;
+import at.ac.tuwien.damap.rest.dmp.domain.IdentifierDO;
 import at.ac.tuwien.damap.rest.dmp.domain.ProjectDO;
 import lombok.experimental.UtilityClass;
 
@@ -34,4 +38,64 @@ public class DmpListItemDOMapper {
 
         return dmpListItemDO;
     }
+
+    public DmpListItemDO mapProjectionToDO(DmpListItemProjection projection, DmpListItemDO dmpListItemDO) {
+        dmpListItemDO.setId(projection.getId());
+        dmpListItemDO.setTitle(projection.getTitle());
+        dmpListItemDO.setCreated(projection.getCreated());
+        dmpListItemDO.setModified(projection.getModified());
+        dmpListItemDO.setDescription(projection.getDescription());
+        dmpListItemDO.setAccessType(projection.getAccessType());
+
+        if (projection.getContactId() != null) {
+            ContributorDO contactDO = new ContributorDO();
+            contactDO.setId(projection.getContactId());
+            contactDO.setUniversityId(projection.getContactUniversityId());
+            contactDO.setFirstName(projection.getContactFirstName());
+            contactDO.setLastName(projection.getContactLastName());
+            contactDO.setMbox(projection.getContactMbox());
+            contactDO.setAffiliation(projection.getContactAffiliation());
+            contactDO.setRole(projection.getContactRole());
+            contactDO.setContact(true);
+            contactDO.setPersonId(mapIdentifier(projection.getContactPersonIdentifier(),
+                    projection.getContactPersonIdentifierType()));
+            contactDO.setAffiliationId(mapIdentifier(projection.getContactAffiliationIdentifier(),
+                    projection.getContactAffiliationIdentifierType()));
+            dmpListItemDO.setContact(contactDO);
+        }
+
+        if (projection.getProjectId() != null) {
+            ProjectDO projectDO = new ProjectDO();
+            projectDO.setId(projection.getProjectId());
+            projectDO.setUniversityId(projection.getProjectUniversityId());
+            projectDO.setTitle(projection.getProjectTitle());
+            projectDO.setDescription(projection.getProjectDescription());
+            projectDO.setStart(projection.getProjectStart());
+            projectDO.setEnd(projection.getProjectEnd());
+            if (projection.getFundingId() != null) {
+                FundingDO fundingDO = new FundingDO();
+                fundingDO.setId(projection.getFundingId());
+                fundingDO.setFundingStatus(projection.getFundingStatus());
+                fundingDO.setFunderId(mapIdentifier(projection.getFunderIdentifier(),
+                        projection.getFunderIdentifierType()));
+                fundingDO.setGrantId(mapIdentifier(projection.getGrantIdentifier(),
+                        projection.getGrantIdentifierType()));
+                projectDO.setFunding(fundingDO);
+            }
+            projectDO.setFunderSupported(projectDO.getFunding() != null);
+            dmpListItemDO.setProject(projectDO);
+        }
+
+        return dmpListItemDO;
+    }
+
+    private IdentifierDO mapIdentifier(String identifier, EIdentifierType type) {
+        if (identifier == null && type == null) {
+            return null;
+        }
+        IdentifierDO identifierDO = new IdentifierDO();
+        identifierDO.setIdentifier(identifier);
+        identifierDO.setType(type);
+        return identifierDO;
+    }
 }
@@ -2,14 +2,16 @@ package at.ac.tuwien.damap.rest.dmp.mapper;
 
 import at.ac.tuwien.damap.domain.*;
 import at.ac.tuwien.damap.r3data.RepositoriesService;
+import at.ac.tuwien.damap.r3data.dto.RepositoryRecord;
 import at.ac.tuwien.damap.repo.*;
 import at.ac.tuwien.damap.rest.storage.InternalStorageDO;
 import at.ac.tuwien.damap.rest.storage.InternalStorageDOMapper;
 import lombok.extern.jbosslog.JBossLog;
-import org.re3data.schema._2_2.Re3Data;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
+import java.util.Collection;
+import java.util.Map;
 
 /*
     Service for injecting other services into mappers which are static
@@ -38,8 +40,18 @@ public class MapperService {
         return dmpRepo.findById(id);
     }
 
-    public Re3Data.Repository getRe3DataRepository(String id) {
-        return repositoriesService.getById(id).getRepository().get(0);
+    public RepositoryRecord getRe3DataRepository(String id) {
+        return repositoriesService.getById(id);
+    }
+
+    /**
+     * Resolves several re3data repositories concurrently, at most damap.repositories.lookup-threads at a time.
+     *
+     * @param ids distinct re3data ids
+     * @return the repositories by id
+     */
+    public Map<String, RepositoryRecord> getRe3DataRepositories(Collection<String> ids) {
+        return repositoriesService.getByIds(ids);
     }
 
     public InternalStorage getInternalStorageById(Long id) {
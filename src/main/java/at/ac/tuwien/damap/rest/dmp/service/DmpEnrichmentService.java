@@ -0,0 +1,414 @@
+package at.ac.tuwien.damap.rest.dmp.service;
+
+import at.ac.tuwien.damap.domain.Contributor;
+import at.ac.tuwien.damap.domain.Dmp;
+import at.ac.tuwien.damap.domain.DmpEnrichmentTask;
+import at.ac.tuwien.damap.enums.EContributorRole;
+import at.ac.tuwien.damap.enums.EEnrichmentStatus;
+import at.ac.tuwien.damap.enums.EEnrichmentType;
+import at.ac.tuwien.damap.enums.EIdentifierType;
+import at.ac.tuwien.damap.repo.ContributorRepo;
+import at.ac.tuwien.damap.repo.DmpEnrichmentTaskRepo;
+import at.ac.tuwien.damap.repo.DmpRepo;
+import at.ac.tuwien.damap.rest.dmp.domain.ContributorDO;
+import at.ac.tuwien.damap.rest.dmp.mapper.ContributorDOMapper;
+import at.ac.tuwien.damap.rest.dmp.mapper.ProjectSupplementDOMapper;
+import at.ac.tuwien.damap.rest.persons.orcid.ORCIDPersonServiceImpl;
+import at.ac.tuwien.damap.rest.projects.ProjectService;
+import at.ac.tuwien.damap.rest.projects.ProjectSupplementDO;
+import at.ac.tuwien.damap.security.RevisionEditor;
+import io.quarkus.arc.Arc;
+import io.quarkus.arc.ManagedContext;
+import io.quarkus.scheduler.Scheduled;
+import lombok.extern.jbosslog.JBossLog;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+import javax.transaction.Transactional;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Enriches saved DMPs with data of ORCID and the CRIS project service outside of the transaction saving them.
+ * Saving a DMP writes tasks to the dmp_enrichment_task outbox table in the same transaction. After the commit,
+ * a background worker claims due tasks, calls the remote systems without holding a transaction and applies
+ * the results in a short transaction of its own. Failed tasks are retried with exponential backoff.
+ * Claimed tasks are leased, so tasks of a crashed worker are picked up again once the lease ended.
+ */
+@ApplicationScoped
+@JBossLog
+public class DmpEnrichmentService {
+
+    @ConfigProperty(name = "damap.enrichment.batch-size", defaultValue = "20")
+    int batchSize;
+
+    @ConfigProperty(name = "damap.enrichment.max-attempts", defaultValue = "6")
+    int maxAttempts;
+
+    @ConfigProperty(name = "damap.enrichment.retry-delay", defaultValue = "PT30S")
+    Duration retryDelay;
+
+    @ConfigProperty(name = "damap.enrichment.max-retry-delay", defaultValue = "PT1H")
+    Duration maxRetryDelay;
+
+    @ConfigProperty(name = "damap.enrichment.lease", defaultValue = "PT5M")
+    Duration lease;
+
+    @ConfigProperty(name = "damap.enrichment.editor", defaultValue = "DAMAP enrichment")
+    String editor;
+
+    @ConfigProperty(name = "damap.enrichment.background", defaultValue = "true")
+    boolean background;
+
+    @Inject
+    DmpEnrichmentTaskRepo dmpEnrichmentTaskRepo;
+
+    @Inject
+    DmpRepo dmpRepo;
+
+    @Inject
+    ContributorRepo contributorRepo;
+
+    @Inject
+    ProjectService projectService;
+
+    @Inject
+    ORCIDPersonServiceImpl orcidPersonService;
+
+    @Inject
+    TransactionSynchronizationRegistry transactionSynchronizationRegistry;
+
+    @Inject
+    RevisionEditor revisionEditor;
+
+    private final AtomicBoolean queued = new AtomicBoolean();
+
+    private ExecutorService worker;
+
+    @PostConstruct
+    void init() {
+        worker = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "damap-enrichment-1");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        worker.shutdownNow();
+    }
+
+    /**
+     * Queues the enrichment of a DMP. Has to be called in the transaction saving the DMP, after its new
+     * contributors were persisted. Processing starts once the transaction committed.
+     *
+     * @param dmp             the saved DMP
+     * @param newContributors contributors added by this save
+     * @param projectChanged  whether the project of the DMP was selected or changed by this save
+     * @return true if any enrichment was queued
+     */
+    public boolean enqueue(Dmp dmp, List<Contributor> newContributors, boolean projectChanged) {
+        dmpEnrichmentTaskRepo.deleteFailedByDmp(dmp.id);
+
+        List<DmpEnrichmentTask> tasks = new ArrayList<>();
+        newContributors.stream()
+                .filter(contributor -> contributor.getPersonIdentifier() != null
+                        && EIdentifierType.ORCID.equals(contributor.getPersonIdentifier().getIdentifierType()))
+                .forEach(contributor -> tasks.add(createTask(dmp, contributor.id, EEnrichmentType.ORCID_CONTRIBUTOR)));
+        if (projectChanged && dmp.getProject() != null && dmp.getProject().getUniversityId() != null) {
+            tasks.add(createTask(dmp, null, EEnrichmentType.PROJECT));
+        }
+        if (tasks.isEmpty()) {
+            return false;
+        }
+
+        dmpEnrichmentTaskRepo.persist(tasks);
+        transactionSynchronizationRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+                // tasks are only processed after the commit
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED) {
+                    trigger();
+                }
+            }
+        });
+        return true;
+    }
+
+    /**
+     * @param dmpId id of the DMP
+     * @return RUNNING or PENDING while enrichment tasks are open, FAILED if one gave up, DONE otherwise
+     */
+    public EEnrichmentStatus getStatus(long dmpId) {
+        List<EEnrichmentStatus> statuses = dmpEnrichmentTaskRepo.getStatusesByDmp(dmpId);
+        for (EEnrichmentStatus status : List.of(EEnrichmentStatus.RUNNING, EEnrichmentStatus.PENDING,
+                EEnrichmentStatus.FAILED)) {
+            if (statuses.contains(status)) {
+                return status;
+            }
+        }
+        return EEnrichmentStatus.DONE;
+    }
+
+    public void deleteByDmp(long dmpId) {
+        dmpEnrichmentTaskRepo.deleteByDmp(dmpId);
+    }
+
+    @Scheduled(every = "{damap.enrichment.poll-interval}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void poll() {
+        trigger();
+    }
+
+    // runs the worker once more, unless a run is already waiting or the background worker is disabled
+    void trigger() {
+        if (!background || !queued.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            worker.execute(() -> {
+                queued.set(false);
+                processDue();
+            });
+        } catch (RejectedExecutionException e) {
+            queued.set(false);
+        }
+    }
+
+    /**
+     * Processes due tasks until none are left. Only one run is active at a time.
+     *
+     * @return number of processed tasks
+     */
+    public synchronized int processDue() {
+        // the database session and other request scoped beans need a request context on a worker thread
+        ManagedContext requestContext = Arc.container().requestContext();
+        boolean activate = !requestContext.isActive();
+        if (activate) {
+            requestContext.activate();
+        }
+        String previousEditor = revisionEditor.getName();
+        revisionEditor.setName(editor);
+        try {
+            int processed = 0;
+            List<Work> claimed;
+            do {
+                claimed = claimDue();
+                process(claimed);
+                processed += claimed.size();
+            } while (!claimed.isEmpty());
+            return processed;
+        } catch (Exception e) {
+            log.error("Processing DMP enrichment tasks failed", e);
+            return 0;
+        } finally {
+            revisionEditor.setName(previousEditor);
+            if (activate) {
+                requestContext.terminate();
+            }
+        }
+    }
+
+    @Transactional
+    List<Work> claimDue() {
+        Date now = new Date();
+        Date leaseEnd = new Date(now.getTime() + lease.toMillis());
+        List<Work> claimed = new ArrayList<>();
+        for (DmpEnrichmentTask task : dmpEnrichmentTaskRepo.getDue(now, batchSize)) {
+            if (!dmpEnrichmentTaskRepo.claim(task, leaseEnd)) {
+                continue;
+            }
+            Work work = new Work(task.id, task.getAttempts() + 1, task.getType(), task.getDmpId(),
+                    task.getContributorId());
+            if (task.getType() == EEnrichmentType.ORCID_CONTRIBUTOR) {
+                Contributor contributor = contributorRepo.findById(task.getContributorId());
+                work.identifier = contributor == null || contributor.getPersonIdentifier() == null
+                        ? null : contributor.getPersonIdentifier().getIdentifier();
+            } else {
+                Dmp dmp = dmpRepo.findById(task.getDmpId());
+                work.identifier = dmp == null || dmp.getProject() == null
+                        ? null : dmp.getProject().getUniversityId();
+            }
+            claimed.add(work);
+        }
+        // claim updates bypass the persistence context
+        dmpEnrichmentTaskRepo.getEntityManager().clear();
+        return claimed;
+    }
+
+    private void process(List<Work> claimed) {
+        List<Work> orcidWork = claimed.stream()
+                .filter(work -> work.type == EEnrichmentType.ORCID_CONTRIBUTOR && work.identifier != null)
+                .collect(Collectors.toList());
+        Map<String, ContributorDO> orcidContributors = orcidWork.isEmpty() ? Map.of()
+                : orcidPersonService.readAll(orcidWork.stream().map(work -> work.identifier).distinct()
+                .collect(Collectors.toList()));
+
+        for (Work work : claimed) {
+            try {
+                if (work.identifier == null) {
+                    // contributor, DMP or project removed in the meantime
+                    complete(work, null);
+                } else if (work.type == EEnrichmentType.ORCID_CONTRIBUTOR) {
+                    ContributorDO contributorDO = orcidContributors.get(work.identifier);
+                    if (contributorDO == null) {
+                        throw new IllegalStateException("Could not fetch ORCID record " + work.identifier);
+                    }
+                    complete(work, () -> applyORCIDContributorInfo(work, contributorDO));
+                } else {
+                    ProjectSupplementDO projectSupplementDO = projectService.getProjectSupplement(work.identifier);
+                    ContributorDO projectLeaderDO = projectService.getProjectLeader(work.identifier);
+                    complete(work, () -> applyProjectInfo(work, projectSupplementDO, projectLeaderDO));
+                }
+            } catch (Exception e) {
+                log.warnv("Enrichment task {0} ({1}) of DMP with id={2} failed: {3}", work.taskId, work.type,
+                        work.dmpId, e.toString());
+                fail(work, e);
+            }
+        }
+    }
+
+    @Transactional
+    void complete(Work work, Runnable apply) {
+        if (apply != null) {
+            apply.run();
+        }
+        dmpEnrichmentTaskRepo.deleteById(work.taskId);
+    }
+
+    @Transactional
+    void fail(Work work, Exception e) {
+        DmpEnrichmentTask task = dmpEnrichmentTaskRepo.findById(work.taskId);
+        if (task == null) {
+            return;
+        }
+        String error = e.toString();
+        task.setLastError(error.length() > 255 ? error.substring(0, 255) : error);
+        if (work.attempts >= maxAttempts) {
+            log.errorv("Giving up enrichment task {0} of DMP with id={1} after {2} attempts", work.taskId,
+                    work.dmpId, work.attempts);
+            task.setStatus(EEnrichmentStatus.FAILED);
+        } else {
+            long delay = Math.min(retryDelay.toMillis() << Math.min(work.attempts - 1, 20), maxRetryDelay.toMillis());
+            task.setStatus(EEnrichmentStatus.PENDING);
+            task.setNextAttempt(new Date(System.currentTimeMillis() + delay));
+        }
+    }
+
+    private DmpEnrichmentTask createTask(Dmp dmp, Long contributorId, EEnrichmentType type) {
+        DmpEnrichmentTask task = new DmpEnrichmentTask();
+        task.setDmpId(dmp.id);
+        task.setContributorId(contributorId);
+        task.setType(type);
+        task.setStatus(EEnrichmentStatus.PENDING);
+        task.setCreated(new Date());
+        task.setNextAttempt(task.getCreated());
+        return task;
+    }
+
+    // Fills the contributor details the user left empty.
+    private void applyORCIDContributorInfo(Work work, ContributorDO contributorDO) {
+        Contributor contributor = contributorRepo.findById(work.contributorId);
+        if (contributor == null) {
+            return;
+        }
+        // changes the DMP's version, so saves expecting the version read before the enrichment are rejected
+        contributor.getDmp().setModified(new Date());
+        if (contributor.getMbox() == null || contributor.getMbox().isEmpty())
+            contributor.setMbox(contributorDO.getMbox());
+
+        if (contributor.getAffiliation() == null || contributor.getAffiliation().isEmpty())
+            contributor.setAffiliation(contributorDO.getAffiliation());
+
+        if (contributor.getFirstName() == null || contributor.getFirstName().isEmpty())
+            contributor.setFirstName(contributorDO.getFirstName());
+
+        if (contributor.getLastName() == null || contributor.getLastName().isEmpty())
+            contributor.setLastName(contributorDO.getLastName());
+    }
+
+    private void applyProjectInfo(Work work, ProjectSupplementDO projectSupplementDO, ContributorDO projectLeaderDO) {
+        Dmp dmp = dmpRepo.findById(work.dmpId);
+        // skip if the project was changed again in the meantime, a newer task takes care of it
+        if (dmp == null || dmp.getProject() == null || !work.identifier.equals(dmp.getProject().getUniversityId())) {
+            return;
+        }
+        ProjectSupplementDOMapper.mapDOtoEntity(
+                projectSupplementDO == null ? new ProjectSupplementDO() : projectSupplementDO, dmp);
+        if (projectLeaderDO != null) {
+            applyProjectLead(dmp, projectLeaderDO);
+        }
+        dmp.setModified(new Date());
+    }
+
+    /**
+     * Set the project leader as contact, if there is no other contact selected.
+     * Add the project leader as a contributor, if it is not already added.
+     */
+    private void applyProjectLead(Dmp dmp, ContributorDO projectLeaderDO) {
+        List<Contributor> dmpContributors = dmp.getContributorList();
+
+        Optional<Contributor> alreadyExistingContributorLeader = dmpContributors.stream()
+                .filter(c -> c.getUniversityId() != null && c.getUniversityId().equals(
+                        projectLeaderDO.getUniversityId()))
+                .findFirst();
+
+        Contributor projectLeaderContributor = alreadyExistingContributorLeader.orElse(new Contributor());
+
+        // Adding project leader as contributor if it was not there yet.
+        if (alreadyExistingContributorLeader.isEmpty()) {
+            ContributorDOMapper.mapDOtoEntity(
+                    projectLeaderDO, projectLeaderContributor);
+            projectLeaderContributor.setDmp(dmp);
+            dmpContributors.add(projectLeaderContributor);
+        }
+
+        // If no role was defined, set contributor role to project leader
+        if (projectLeaderContributor.getContributorRole() == null) {
+            projectLeaderContributor.setContributorRole(
+                    EContributorRole.PROJECT_LEADER);
+        }
+
+        // If no other contact was defined, set project leader as contact.
+        if (dmpContributors.stream().noneMatch(c -> c.getContact())) {
+            projectLeaderContributor.setContact(true);
+        }
+    }
+
+    static class Work {
+        final long taskId;
+        final int attempts;
+        final EEnrichmentType type;
+        final Long dmpId;
+        final Long contributorId;
+        // ORCID iD of the contributor or university id of the project
+        String identifier;
+
+        Work(long taskId, int attempts, EEnrichmentType type, Long dmpId, Long contributorId) {
+            this.taskId = taskId;
+            this.attempts = attempts;
+            this.type = type;
+            this.dmpId = dmpId;
+            this.contributorId = contributorId;
+        }
+    }
+}
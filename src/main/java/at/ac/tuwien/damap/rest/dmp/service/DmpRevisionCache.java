@@ -0,0 +1,110 @@
+package at.ac.tuwien.damap.rest.dmp.service;
+
+import at.ac.tuwien.damap.rest.dmp.domain.DmpDO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.Value;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Supplier;
+
+/**
+ * Keeps reconstructed historic DMPs, since rebuilding a revision through Envers loads the DMP with all its
+ * collections. A revision does not change once written, so entries are only removed when the cache is full,
+ * least recently used first, or when historic data is rewritten. DMPs are stored serialised, every caller gets
+ * its own copy.
+ */
+@ApplicationScoped
+public class DmpRevisionCache {
+
+    @ConfigProperty(name = "damap.versions.revision-cache-max-weight", defaultValue = "16777216")
+    long maxWeight;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    private Cache<Key, byte[]> revisions;
+
+    // incremented by invalidateAll, DMPs loaded before are not cached
+    private long generation = 0;
+
+    @PostConstruct
+    void init() {
+        revisions = Caffeine.newBuilder()
+                .maximumWeight(maxWeight)
+                .weigher((Key key, byte[] dmp) -> dmp.length)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, revisions, "dmp-revision");
+    }
+
+    /**
+     * @param dmpId    the DMP's id
+     * @param revision the revision number
+     * @param loader   reconstructs the DMP if it is not cached
+     * @return the DMP as of the revision
+     */
+    public DmpDO get(long dmpId, long revision, Supplier<DmpDO> loader) {
+        Key key = new Key(dmpId, revision);
+        byte[] cached = revisions.getIfPresent(key);
+        if (cached != null) {
+            return read(cached);
+        }
+        long loadedGeneration = getGeneration();
+        DmpDO dmpDO = loader.get();
+        byte[] dmp = write(dmpDO);
+        synchronized (this) {
+            // the loader may have read the audit rows before they were rewritten
+            if (loadedGeneration == generation) {
+                revisions.put(key, dmp);
+            }
+        }
+        return dmpDO;
+    }
+
+    /**
+     * Removes all DMPs, needed when historic data is changed after all, e.g. by a GDPR anonymisation.
+     * DMPs being loaded while this is called are not cached.
+     */
+    public synchronized void invalidateAll() {
+        generation++;
+        revisions.invalidateAll();
+    }
+
+    private synchronized long getGeneration() {
+        return generation;
+    }
+
+    private DmpDO read(byte[] dmp) {
+        try {
+            return objectMapper.readValue(dmp, DmpDO.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private byte[] write(DmpDO dmpDO) {
+        try {
+            return objectMapper.writeValueAsBytes(dmpDO);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Value
+    static class Key {
+        long dmpId;
+        long revision;
+    }
+}
@@ -5,12 +5,15 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Objects;
-import java.util.Optional;
+import java.util.stream.Collectors;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 import javax.transaction.Transactional;
 import javax.validation.Valid;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
 
 import at.ac.tuwien.damap.domain.Identifier;
 import at.ac.tuwien.damap.rest.dmp.mapper.*;
@@ -20,17 +23,17 @@ import org.hibernate.envers.AuditReaderFactory;
 import at.ac.tuwien.damap.domain.Access;
 import at.ac.tuwien.damap.domain.Contributor;
 import at.ac.tuwien.damap.domain.Dmp;
-import at.ac.tuwien.damap.enums.EContributorRole;
 import at.ac.tuwien.damap.enums.EFunctionRole;
-import at.ac.tuwien.damap.enums.EIdentifierType;
 import at.ac.tuwien.damap.repo.AccessRepo;
 import at.ac.tuwien.damap.repo.DmpRepo;
-import at.ac.tuwien.damap.rest.dmp.domain.ContributorDO;
+import at.ac.tuwien.damap.repo.RevisionRepo;
+import at.ac.tuwien.damap.rest.base.Pagination;
+import at.ac.tuwien.damap.rest.base.ResultList;
+import at.ac.tuwien.damap.rest.base.Search;
 import at.ac.tuwien.damap.rest.dmp.domain.DmpDO;
 import at.ac.tuwien.damap.rest.dmp.domain.DmpListItemDO;
-import at.ac.tuwien.damap.rest.dmp.domain.IdentifierDO;
+import at.ac.tuwien.damap.rest.dmp.domain.DmpListItemProjection;
 import at.ac.tuwien.damap.rest.dmp.domain.ProjectDO;
-import at.ac.tuwien.damap.rest.persons.orcid.ORCIDPersonServiceImpl;
 import at.ac.tuwien.damap.rest.projects.ProjectService;
 import at.ac.tuwien.damap.rest.projects.ProjectSupplementDO;
 import at.ac.tuwien.damap.rest.version.VersionDO;
@@ -41,6 +44,8 @@ import lombok.extern.jbosslog.JBossLog;
 @JBossLog
 public class DmpService {
 
+    static final int MAX_PER_PAGE = 100;
+
     @Inject
     DmpRepo dmpRepo;
 
@@ -57,29 +62,68 @@ public class DmpService {
     VersionService versionService;
 
     @Inject
-    ORCIDPersonServiceImpl orcidPersonService;
+    DmpEnrichmentService dmpEnrichmentService;
+
+    @Inject
+    RevisionRepo revisionRepo;
+
+    @Inject
+    DmpRevisionCache dmpRevisionCache;
+
+    /**
+     * Returns one page of the list view of all DMPs, most recently modified first.
+     * Pages are selected with the {@code cursor} query parameter, which is taken from the
+     * {@code nextCursor} of the previous page. Pages hold at most {@value MAX_PER_PAGE} DMPs.
+     *
+     * @param queryParams query parameters containing {@code perPage} and optionally {@code cursor}
+     * @return list items of the requested page
+     */
+    public ResultList<DmpListItemDO> getAll(MultivaluedMap<String, String> queryParams) {
+        Search search = Search.fromMap(queryParams);
+        Pagination pagination = search.getPagination();
+        int perPage = Math.min(Math.max(pagination.getPerPage(), 1), MAX_PER_PAGE);
+
+        Date lastModified = null;
+        Long lastId = null;
+        if (pagination.getCursor() != null) {
+            try {
+                String[] cursor = pagination.getCursor().split("_", 2);
+                lastModified = new Date(Long.parseLong(cursor[0]));
+                lastId = Long.parseLong(cursor[1]);
+            } catch (Exception e) {
+                log.warn("Ignoring invalid cursor: " + pagination.getCursor());
+                pagination.setCursor(null);
+            }
+        }
 
-    public List<DmpListItemDO> getAll() {
+        // fetch one additional row to find out whether there is a next page
+        List<DmpListItemProjection> projections = dmpRepo.getAllListItems(lastModified, lastId, perPage + 1);
+        boolean hasNext = projections.size() > perPage;
+        if (hasNext) {
+            projections = projections.subList(0, perPage);
+            DmpListItemProjection last = projections.get(perPage - 1);
+            pagination.setNextCursor(last.getLastModified().getTime() + "_" + last.getId());
+        }
+        pagination.setHasNext(hasNext);
 
-        List<Dmp> dmpList = dmpRepo.getAll();
         List<DmpListItemDO> dmpListItemDOList = new ArrayList<>();
-        dmpList.forEach(
-                dmp -> dmpListItemDOList.add(DmpListItemDOMapper.mapEntityToDO(null, dmp, new DmpListItemDO())));
-        return dmpListItemDOList;
+        projections.forEach(projection ->
+                dmpListItemDOList.add(DmpListItemDOMapper.mapProjectionToDO(projection, new DmpListItemDO())));
+        return ResultList.fromItemsAndSearch(dmpListItemDOList, search);
     }
 
     public List<DmpListItemDO> getDmpListByPersonId(String personId) {
 
-        List<Access> accessList = accessRepo.getAllDmpByUniversityId(personId);
-
         List<DmpListItemDO> dmpListItemDOS = new ArrayList<>();
-        accessList.forEach(access -> dmpListItemDOS
-                .add(DmpListItemDOMapper.mapEntityToDO(access, access.getDmp(), new DmpListItemDO())));
+        accessRepo.getDmpListItemsByUniversityId(personId).forEach(projection -> dmpListItemDOS
+                .add(DmpListItemDOMapper.mapProjectionToDO(projection, new DmpListItemDO())));
         return dmpListItemDOS;
     }
 
     public DmpDO getDmpById(long dmpId) {
-        return DmpDOMapper.mapEntityToDO(dmpRepo.findById(dmpId), new DmpDO());
+        DmpDO dmpDO = DmpDOMapper.mapEntityToDO(dmpRepo.findById(dmpId), new DmpDO());
+        dmpDO.setEnrichmentStatus(dmpEnrichmentService.getStatus(dmpId));
+        return dmpDO;
     }
 
     @Transactional
@@ -88,28 +132,43 @@ public class DmpService {
         DmpConsistencyUtility.enforceDmpConsistency(dmpDO);
         Dmp dmp = DmpDOMapper.mapDOtoEntity(dmpDO, new Dmp(), mapperService);
         dmp.setCreated(new Date());
-        fetchORCIDContributorInfo(dmp);
-        updateDmpSupplementalInfo(dmp);
-        updateProjectLead(dmp);
+        List<Contributor> newContributors = getNewContributors(dmp);
+        resetDmpSupplementalInfo(dmp);
         dmp.persistAndFlush();
         createAccess(dmp, editedBy);
+        dmpEnrichmentService.enqueue(dmp, newContributors, true);
         return getDmpById(dmp.id);
     }
 
     @Transactional
     public DmpDO update(@Valid DmpDO dmpDO) {
+        return update(dmpDO, null);
+    }
+
+    /**
+     * @param expectedVersion version of the DMP the client expects to overwrite, e.g. taken from an
+     *                        {@code If-Match} header, or null to save without checking
+     * @throws WebApplicationException with status 412 if the DMP is no longer at the expected version
+     */
+    @Transactional
+    public DmpDO update(@Valid DmpDO dmpDO, Long expectedVersion) {
         log.info("Updating DMP with id " + dmpDO.getId());
         DmpConsistencyUtility.enforceDmpConsistency(dmpDO);
         Dmp dmp = dmpRepo.findById(dmpDO.getId());
+        // the DMP was changed since the client read it, e.g. by the enrichment, overwriting it would revert that
+        if (expectedVersion != null && expectedVersion != dmp.getVersion()) {
+            throw new WebApplicationException("DMP with id " + dmpDO.getId() + " was changed in the meantime, "
+                    + "reload it before saving.", Response.Status.PRECONDITION_FAILED);
+        }
         boolean projectSelectionChanged = projectSelectionChanged(dmp, dmpDO);
         DmpDOMapper.mapDOtoEntity(dmpDO, dmp, mapperService);
         dmp.setModified(new Date());
-        fetchORCIDContributorInfo(dmp);
+        List<Contributor> newContributors = getNewContributors(dmp);
         if (projectSelectionChanged) {
-            updateDmpSupplementalInfo(dmp);
-            updateProjectLead(dmp);
+            resetDmpSupplementalInfo(dmp);
         }
         dmp.persistAndFlush();
+        dmpEnrichmentService.enqueue(dmp, newContributors, projectSelectionChanged);
         return getDmpById(dmp.id);
     }
 
@@ -119,6 +178,7 @@ public class DmpService {
         Dmp dmp = dmpRepo.findById(dmpId);
         this.removeAccess(dmp);
         this.removeVersions(dmp);
+        dmpEnrichmentService.deleteByDmp(dmpId);
         dmpRepo.deleteById(dmpId);
     }
 
@@ -183,96 +243,20 @@ public class DmpService {
         return projectDOList;
     }
 
-    // This method will retrieve the Project Supplement values from the connected
-    // CRIS System and it will reset them to null in case the project is not from a
+    // Project Supplement values of a project from a connected CRIS system are retrieved by the
+    // DmpEnrichmentService after saving. They are reset to null in case the project is not from a
     // connected system.
-    private void updateDmpSupplementalInfo(Dmp dmp) {
-        if (dmp.getProject() != null) {
-            ProjectSupplementDO projectSupplementDO = null;
-            if (dmp.getProject().getUniversityId() != null) {
-                projectSupplementDO = projectService.getProjectSupplement(dmp.getProject().getUniversityId());
-            }
-            if (projectSupplementDO == null)
-                projectSupplementDO = new ProjectSupplementDO();
-            ProjectSupplementDOMapper.mapDOtoEntity(projectSupplementDO, dmp);
+    private void resetDmpSupplementalInfo(Dmp dmp) {
+        if (dmp.getProject() != null && dmp.getProject().getUniversityId() == null) {
+            ProjectSupplementDOMapper.mapDOtoEntity(new ProjectSupplementDO(), dmp);
         }
     }
 
-    /**
-     * Retrieve the project leader of the DMPs project.
-     * Set the project leader as contact, if there is no other contact selected.
-     * Add the project leader as a contributor, if it is not already added.
-     *
-     * @param dmp Data management plan
-     */
-    private void updateProjectLead(Dmp dmp) {
-        if (dmp.getProject() == null || dmp.getProject().getUniversityId() == null)
-            return;
-
-        ContributorDO projectLeaderDO = projectService.getProjectLeader(dmp.getProject().getUniversityId());
-        if (projectLeaderDO == null)
-            return;
-
-        List<Contributor> dmpContributors = dmp.getContributorList();
-
-        Optional<Contributor> alreadyExistingContributorLeader = dmpContributors.stream()
-                .filter(c -> c.getUniversityId().equals(
-                        projectLeaderDO.getUniversityId()))
-                .findFirst();
-
-        Contributor projectLeaderContributor = alreadyExistingContributorLeader.orElse(new Contributor());
-
-        // Adding project leader as contributor if it was not there yet.
-        if (alreadyExistingContributorLeader.isEmpty()) {
-            ContributorDOMapper.mapDOtoEntity(
-                    projectLeaderDO, projectLeaderContributor);
-            projectLeaderContributor.setDmp(dmp);
-            dmpContributors.add(projectLeaderContributor);
-        }
-
-        // If no role was defined, set contributor role to project leader
-        if (projectLeaderContributor.getContributorRole() == null) {
-            projectLeaderContributor.setContributorRole(
-                    EContributorRole.PROJECT_LEADER);
-        }
-
-        // If no other contact was defined, set project leader as contact.
-        if (dmpContributors.stream().noneMatch(c -> c.getContact())) {
-            projectLeaderContributor.setContact(true);
-        }
-    }
-
-    private void fetchORCIDContributorInfo(Dmp dmp) {
-        dmp.getContributorList().forEach(contributor -> {
-            // Existing contributor? Do not fetch data.
-            if (contributor.id != null) {
-                return;
-            }
-
-            var identifier = contributor.getPersonIdentifier();
-            if (identifier != null
-                    && identifier.getIdentifierType().equals(EIdentifierType.ORCID)) {
-                try {
-                    ContributorDO contributorDO = orcidPersonService.read(identifier.getIdentifier());
-                    if (contributor.getMbox() == null || contributor.getMbox().isEmpty())
-                        contributor.setMbox(contributorDO.getMbox());
-
-                    if (contributor.getAffiliation() == null || contributor.getAffiliation().isEmpty())
-                        contributor.setAffiliation(contributorDO.getAffiliation());
-
-                    if (contributor.getFirstName() == null || contributor.getFirstName().isEmpty())
-                        contributor.setFirstName(contributorDO.getFirstName());
-
-                    if (contributor.getLastName() == null || contributor.getLastName().isEmpty())
-                        contributor.setLastName(contributorDO.getLastName());
-
-                } catch (Exception e) {
-                    log.warn(String.format(
-                            "Could not fetch ORCID or map contributor info for identifier '%s'.%nDetail error message: %s",
-                            identifier.getIdentifier(), e));
-                }
-            }
-        });
+    // Contributors not persisted yet. Their details are fetched from ORCID by the DmpEnrichmentService.
+    private List<Contributor> getNewContributors(Dmp dmp) {
+        return dmp.getContributorList().stream()
+                .filter(contributor -> contributor.id == null)
+                .collect(Collectors.toList());
     }
 
     private boolean projectSelectionChanged(Dmp dmp, DmpDO dmpDO) {
@@ -287,6 +271,15 @@ public class DmpService {
     }
 
     public DmpDO getDmpByIdAndRevision(long dmpId, long revision) {
+        // only a committed revision of the DMP itself is final, revision numbers are taken from a sequence,
+        // so a transaction with a lower number than an existing revision can still commit
+        if (!revisionRepo.isDmpRevision(dmpId, revision)) {
+            return loadDmpByIdAndRevision(dmpId, revision);
+        }
+        return dmpRevisionCache.get(dmpId, revision, () -> loadDmpByIdAndRevision(dmpId, revision));
+    }
+
+    private DmpDO loadDmpByIdAndRevision(long dmpId, long revision) {
         AuditReader reader = AuditReaderFactory.get(dmpRepo.getEntityManager());
         Dmp dmpRevision = reader.find(Dmp.class, dmpId, revision);
         return DmpDOMapper.mapEntityToDO(dmpRevision, new DmpDO());
@@ -0,0 +1,20 @@
+package at.ac.tuwien.damap.rest.document.domain;
+
+import at.ac.tuwien.damap.enums.ETemplateType;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class BatchExportDO {
+
+    // if empty, all DMPs the user has access to are exported
+    private List<Long> dmpIds = new ArrayList<>();
+    // if set and dmpIds is empty, only DMPs of projects funded by this funder are exported, e.g. a FundRef id
+    private String funderId;
+    // if not set, the template is selected for each DMP
+    private ETemplateType template;
+}
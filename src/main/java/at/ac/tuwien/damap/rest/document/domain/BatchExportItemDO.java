@@ -0,0 +1,17 @@
+package at.ac.tuwien.damap.rest.document.domain;
+
+import at.ac.tuwien.damap.enums.EExportJobStatus;
+import at.ac.tuwien.damap.enums.ETemplateType;
+import lombok.Data;
+
+@Data
+public class BatchExportItemDO {
+
+    private long dmpId;
+    private EExportJobStatus status;
+    // template requested for the export, null if it is selected for each DMP
+    private ETemplateType template;
+    // name of the document within the archive, only set if exported
+    private String filename;
+    private String error;
+}
@@ -0,0 +1,21 @@
+package at.ac.tuwien.damap.rest.document.domain;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+@Data
+public class BatchExportManifestDO {
+
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss.SSSXXX")
+    private Date started;
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss.SSSXXX")
+    private Date finished;
+    private int total;
+    private int exported;
+    private int failed;
+    private List<BatchExportItemDO> items = new ArrayList<>();
+}
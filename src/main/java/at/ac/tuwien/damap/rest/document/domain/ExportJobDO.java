@@ -0,0 +1,27 @@
+package at.ac.tuwien.damap.rest.document.domain;
+
+import at.ac.tuwien.damap.enums.EExportJobStatus;
+import at.ac.tuwien.damap.enums.ETemplateType;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Data;
+
+import java.util.Date;
+
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ExportJobDO {
+
+    // also serves as download token
+    private String id;
+    private long dmpId;
+    private ETemplateType template;
+    private EExportJobStatus status;
+    private String filename;
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss.SSSXXX")
+    private Date created;
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss.SSSXXX")
+    private Date finished;
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss.SSSXXX")
+    private Date expires;
+}
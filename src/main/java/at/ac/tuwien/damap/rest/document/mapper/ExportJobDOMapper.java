@@ -0,0 +1,22 @@
+package at.ac.tuwien.damap.rest.document.mapper;
+
+import at.ac.tuwien.damap.rest.document.domain.ExportJobDO;
+import at.ac.tuwien.damap.rest.document.service.ExportJob;
+import lombok.experimental.UtilityClass;
+
+@UtilityClass
+public class ExportJobDOMapper {
+
+    public ExportJobDO mapEntityToDO(ExportJob exportJob, ExportJobDO exportJobDO) {
+        exportJobDO.setId(exportJob.getId());
+        exportJobDO.setDmpId(exportJob.getDmpId());
+        exportJobDO.setTemplate(exportJob.getTemplate());
+        exportJobDO.setStatus(exportJob.getStatus());
+        exportJobDO.setFilename(exportJob.getFilename());
+        exportJobDO.setCreated(exportJob.getCreated());
+        exportJobDO.setFinished(exportJob.getFinished());
+        exportJobDO.setExpires(exportJob.getExpires());
+
+        return exportJobDO;
+    }
+}
@@ -0,0 +1,218 @@
+package at.ac.tuwien.damap.rest.document.service;
+
+import at.ac.tuwien.damap.conversion.ExportTemplateBroker;
+import at.ac.tuwien.damap.conversion.RenderedDocumentCache;
+import at.ac.tuwien.damap.enums.EExportJobStatus;
+import at.ac.tuwien.damap.enums.ETemplateType;
+import at.ac.tuwien.damap.rest.dmp.service.DmpService;
+import at.ac.tuwien.damap.rest.document.domain.BatchExportItemDO;
+import at.ac.tuwien.damap.rest.document.domain.BatchExportManifestDO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.quarkus.arc.Arc;
+import io.quarkus.arc.ManagedContext;
+import lombok.Value;
+import lombok.extern.jbosslog.JBossLog;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.Date;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Exports many DMP documents into one ZIP archive.
+ * Documents are rendered in parallel, but only a few of them are pending at a time,
+ * each one is written to the archive as soon as it is ready.
+ * The archive ends with a manifest.json listing the outcome of every requested DMP.
+ */
+@ApplicationScoped
+@JBossLog
+public class BatchExportService {
+
+    public static final String MANIFEST = "manifest.json";
+
+    @ConfigProperty(name = "damap.export.batch.threads", defaultValue = "4")
+    int threads;
+
+    @ConfigProperty(name = "damap.export.batch.max-size", defaultValue = "500")
+    int maxSize;
+
+    @Inject
+    ExportTemplateBroker exportTemplateBroker;
+
+    @Inject
+    RenderedDocumentCache renderedDocumentCache;
+
+    @Inject
+    DmpService dmpService;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    void init() {
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "damap-batch-export-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Writes the archive. DMPs the user is not allowed to export have to be checked beforehand,
+     * they can be passed as forbidden to show up in the manifest.
+     *
+     * @param dmpIds    DMPs to export
+     * @param forbidden DMPs that were requested but may not be exported
+     * @param template  template to use, null to select it for each DMP
+     * @param os        target of the archive, is not closed
+     */
+    public void export(List<Long> dmpIds, List<Long> forbidden, ETemplateType template, OutputStream os)
+            throws IOException {
+        BatchExportManifestDO manifest = new BatchExportManifestDO();
+        manifest.setStarted(new Date());
+        manifest.setTotal(dmpIds.size() + forbidden.size());
+        forbidden.forEach(dmpId -> manifest.getItems().add(
+                failedItem(dmpId, template, "Not authorized to access dmp with id " + dmpId)));
+        manifest.setFailed(forbidden.size());
+
+        ZipOutputStream zip = new ZipOutputStream(os);
+        CompletionService<RenderedItem> completionService = new ExecutorCompletionService<>(executor);
+        Deque<Future<RenderedItem>> pending = new ArrayDeque<>();
+        Iterator<Long> remaining = dmpIds.iterator();
+        // keep every thread busy without rendering far ahead of what the archive can take
+        int window = threads * 2;
+        try {
+            while (remaining.hasNext() && pending.size() < window) {
+                pending.add(submit(completionService, remaining.next(), template));
+            }
+            while (!pending.isEmpty()) {
+                Future<RenderedItem> future = completionService.take();
+                pending.remove(future);
+                RenderedItem rendered = future.get();
+                if (rendered.getDocument() != null) {
+                    zip.putNextEntry(new ZipEntry(rendered.getItem().getFilename()));
+                    RenderedDocumentCache.transfer(rendered.getDocument(), zip);
+                    zip.closeEntry();
+                    manifest.setExported(manifest.getExported() + 1);
+                } else {
+                    manifest.setFailed(manifest.getFailed() + 1);
+                }
+                manifest.getItems().add(rendered.getItem());
+                if (remaining.hasNext()) {
+                    pending.add(submit(completionService, remaining.next(), template));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Batch export interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Batch export failed", e);
+        } finally {
+            pending.forEach(BatchExportService::discard);
+        }
+
+        manifest.setFinished(new Date());
+        zip.putNextEntry(new ZipEntry(MANIFEST));
+        zip.write(objectMapper.writeValueAsBytes(manifest));
+        zip.closeEntry();
+        zip.finish();
+        log.info("Batch export finished, " + manifest.getExported() + " exported, " + manifest.getFailed() + " failed");
+    }
+
+    private Future<RenderedItem> submit(CompletionService<RenderedItem> completionService, long dmpId,
+                                        ETemplateType template) {
+        return completionService.submit(() -> render(dmpId, template));
+    }
+
+    // runs on the export pool, never throws so the manifest can record the failure
+    private RenderedItem render(long dmpId, ETemplateType template) {
+        ManagedContext requestContext = Arc.container().requestContext();
+        requestContext.activate();
+        try {
+            // same key as the single export, the template is only selected when the document is rendered
+            String key = renderedDocumentCache.getKey(dmpId, template);
+            FileChannel document = renderedDocumentCache.open(key);
+            if (document == null) {
+                ETemplateType type = template != null ? template : exportTemplateBroker.selectTemplate(dmpId);
+                XWPFDocument exported = exportTemplateBroker.exportTemplateByType(dmpId, type);
+                if (exported == null) {
+                    return new RenderedItem(failedItem(dmpId, template, "Export returned no document"), null);
+                }
+                document = renderedDocumentCache.put(key, exported);
+            }
+
+            BatchExportItemDO item = new BatchExportItemDO();
+            item.setDmpId(dmpId);
+            item.setTemplate(template);
+            item.setStatus(EExportJobStatus.DONE);
+            item.setFilename(dmpId + "_" + dmpService.getDefaultFileName(dmpId) + ".docx");
+            return new RenderedItem(item, document);
+        } catch (Exception e) {
+            log.warn("Batch export of DMP with id=" + dmpId + " failed", e);
+            return new RenderedItem(failedItem(dmpId, template, e.getMessage()), null);
+        } finally {
+            requestContext.terminate();
+        }
+    }
+
+    private static BatchExportItemDO failedItem(long dmpId, ETemplateType template, String error) {
+        BatchExportItemDO item = new BatchExportItemDO();
+        item.setDmpId(dmpId);
+        item.setTemplate(template);
+        item.setStatus(EExportJobStatus.FAILED);
+        item.setError(error);
+        return item;
+    }
+
+    // releases documents that were rendered but not written, e.g. after the client disconnected
+    private static void discard(Future<RenderedItem> future) {
+        if (future.cancel(true) || !future.isDone()) {
+            return;
+        }
+        try {
+            FileChannel document = future.get().getDocument();
+            if (document != null) {
+                document.close();
+            }
+        } catch (Exception e) {
+            log.debug("Could not release rendered document", e);
+        }
+    }
+
+    @Value
+    private static class RenderedItem {
+        BatchExportItemDO item;
+        FileChannel document;
+    }
+}
@@ -0,0 +1,31 @@
+package at.ac.tuwien.damap.rest.document.service;
+
+import at.ac.tuwien.damap.enums.EExportJobStatus;
+import at.ac.tuwien.damap.enums.ETemplateType;
+import lombok.Data;
+
+import java.nio.file.Path;
+import java.util.Date;
+
+/**
+ * State of a single document export, shared between the request threads and the export worker.
+ */
+@Data
+public class ExportJob {
+
+    private final String id;
+    private final String personId;
+    private final long dmpId;
+    private final ETemplateType template;
+    private final String filename;
+    private final Date created = new Date();
+
+    private volatile EExportJobStatus status = EExportJobStatus.QUEUED;
+    private volatile Date finished;
+    private volatile Date expires;
+    private volatile Path file;
+
+    public boolean isActive() {
+        return status == EExportJobStatus.QUEUED || status == EExportJobStatus.RUNNING;
+    }
+}
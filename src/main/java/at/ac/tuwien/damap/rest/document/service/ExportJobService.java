@@ -0,0 +1,201 @@
+package at.ac.tuwien.damap.rest.document.service;
+
+import at.ac.tuwien.damap.conversion.ExportTemplateBroker;
+import at.ac.tuwien.damap.enums.EExportJobStatus;
+import at.ac.tuwien.damap.enums.ETemplateType;
+import at.ac.tuwien.damap.rest.dmp.service.DmpService;
+import io.quarkus.arc.Arc;
+import io.quarkus.arc.ManagedContext;
+import io.quarkus.scheduler.Scheduled;
+import lombok.extern.jbosslog.JBossLog;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.ws.rs.NotFoundException;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Date;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs document exports in the background on a bounded pool, so large exports do not block request threads.
+ * Finished documents are kept as temporary files until their time to live expires.
+ */
+@ApplicationScoped
+@JBossLog
+public class ExportJobService {
+
+    @ConfigProperty(name = "damap.export.jobs.threads", defaultValue = "2")
+    int threads;
+
+    @ConfigProperty(name = "damap.export.jobs.queue-size", defaultValue = "20")
+    int queueSize;
+
+    @ConfigProperty(name = "damap.export.jobs.max-per-user", defaultValue = "2")
+    int maxPerUser;
+
+    @ConfigProperty(name = "damap.export.jobs.ttl", defaultValue = "PT15M")
+    Duration ttl;
+
+    @Inject
+    ExportTemplateBroker exportTemplateBroker;
+
+    @Inject
+    DmpService dmpService;
+
+    private final Map<String, ExportJob> jobs = new ConcurrentHashMap<>();
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    void init() {
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(queueSize, 1)), runnable -> {
+                    Thread thread = new Thread(runnable, "damap-export-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+        jobs.values().forEach(this::deleteFile);
+        jobs.clear();
+    }
+
+    /**
+     * Queues the export of a DMP document.
+     *
+     * @param dmpId    id of the DMP to export
+     * @param template template to use, null to select it based on the DMP
+     * @param personId user requesting the export, only this user may access the job
+     * @return the queued job
+     * @throws WebApplicationException with status 429 if the user or the whole queue has too many pending exports
+     */
+    public ExportJob submit(long dmpId, ETemplateType template, String personId) {
+        ExportJob job = new ExportJob(UUID.randomUUID().toString(), personId, dmpId, template,
+                dmpService.getDefaultFileName(dmpId));
+
+        synchronized (jobs) {
+            long activeJobs = jobs.values().stream()
+                    .filter(j -> j.getPersonId().equals(personId) && j.isActive())
+                    .count();
+            if (activeJobs >= maxPerUser) {
+                throw new WebApplicationException("Too many running exports, try again later.",
+                        Response.Status.TOO_MANY_REQUESTS);
+            }
+            jobs.put(job.getId(), job);
+        }
+
+        try {
+            executor.execute(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            throw new WebApplicationException("Export queue is full, try again later.",
+                    Response.Status.TOO_MANY_REQUESTS);
+        }
+        log.info("Queued export job " + job.getId() + " for DMP with id=" + dmpId);
+        return job;
+    }
+
+    /**
+     * @param jobId    the job id, as returned by {@link #submit}
+     * @param personId the user asking for the job
+     * @return the job
+     * @throws NotFoundException if the job does not exist, expired or belongs to another user
+     */
+    public ExportJob getJob(String jobId, String personId) {
+        ExportJob job = jobs.get(jobId);
+        if (job == null || !job.getPersonId().equals(personId)) {
+            throw new NotFoundException("Export job " + jobId + " not found.");
+        }
+        return job;
+    }
+
+    /**
+     * @param jobId    the job id, as returned by {@link #submit}
+     * @param personId the user asking for the job
+     * @return the exported document
+     * @throws WebApplicationException with status 409 if the export has not finished successfully
+     */
+    public Path getFile(String jobId, String personId) {
+        ExportJob job = getJob(jobId, personId);
+        if (job.getStatus() != EExportJobStatus.DONE) {
+            throw new WebApplicationException("Export job " + jobId + " is " + job.getStatus() + ".",
+                    Response.Status.CONFLICT);
+        }
+        return job.getFile();
+    }
+
+    @Scheduled(every = "1m", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void removeExpiredJobs() {
+        Date now = new Date();
+        jobs.values().removeIf(job -> {
+            if (job.getExpires() != null && job.getExpires().before(now)) {
+                deleteFile(job);
+                return true;
+            }
+            return false;
+        });
+    }
+
+    private void run(ExportJob job) {
+        // the database session and other request scoped beans need a request context on a worker thread
+        ManagedContext requestContext = Arc.container().requestContext();
+        requestContext.activate();
+        try {
+            job.setStatus(EExportJobStatus.RUNNING);
+            XWPFDocument document = job.getTemplate() == null
+                    ? exportTemplateBroker.exportTemplate(job.getDmpId())
+                    : exportTemplateBroker.exportTemplateByType(job.getDmpId(), job.getTemplate());
+            if (document == null) {
+                throw new IllegalStateException("Export returned no document");
+            }
+            Path file = Files.createTempFile("damap-export-", ".docx");
+            try (document; OutputStream os = Files.newOutputStream(file)) {
+                document.write(os);
+            }
+            job.setFile(file);
+            job.setStatus(EExportJobStatus.DONE);
+        } catch (Exception e) {
+            log.error("Export job " + job.getId() + " for DMP with id=" + job.getDmpId() + " failed", e);
+            deleteFile(job);
+            job.setStatus(EExportJobStatus.FAILED);
+        } finally {
+            Date finished = new Date();
+            job.setFinished(finished);
+            job.setExpires(new Date(finished.getTime() + ttl.toMillis()));
+            requestContext.terminate();
+        }
+    }
+
+    private void deleteFile(ExportJob job) {
+        Path file = job.getFile();
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete export file " + file, e);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package at.ac.tuwien.damap.rest.gdpr.domain;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class AnonymisationDO {
+
+    // users whose GDPR data is anonymised
+    private List<String> universityIds = new ArrayList<>();
+}
@@ -0,0 +1,24 @@
+package at.ac.tuwien.damap.rest.gdpr.domain;
+
+import at.ac.tuwien.damap.enums.EExportJobStatus;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Data;
+
+import java.util.Date;
+
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class AnonymisationJobDO {
+
+    private String id;
+    private EExportJobStatus status;
+    private int total;
+    private int processed;
+    private long updatedRows;
+    private String error;
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss.SSSXXX")
+    private Date created;
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss.SSSXXX")
+    private Date finished;
+}
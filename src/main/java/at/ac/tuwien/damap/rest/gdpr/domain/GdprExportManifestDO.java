@@ -0,0 +1,24 @@
+package at.ac.tuwien.damap.rest.gdpr.domain;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+@Data
+public class GdprExportManifestDO {
+
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss.SSSXXX")
+    private Date created;
+    private boolean extended;
+    private List<Entry> entities = new ArrayList<>();
+
+    @Data
+    public static class Entry {
+        private String entity;
+        private String filename;
+        private long rows;
+    }
+}
@@ -0,0 +1,22 @@
+package at.ac.tuwien.damap.rest.gdpr.mapper;
+
+import at.ac.tuwien.damap.rest.gdpr.domain.AnonymisationJobDO;
+import at.ac.tuwien.damap.rest.gdpr.service.AnonymisationJob;
+import lombok.experimental.UtilityClass;
+
+@UtilityClass
+public class AnonymisationJobDOMapper {
+
+    public AnonymisationJobDO mapEntityToDO(AnonymisationJob job, AnonymisationJobDO jobDO) {
+        jobDO.setId(job.getId());
+        jobDO.setStatus(job.getStatus());
+        jobDO.setTotal(job.getUniversityIds().size());
+        jobDO.setProcessed(job.getProcessed());
+        jobDO.setUpdatedRows(job.getUpdatedRows());
+        jobDO.setError(job.getError());
+        jobDO.setCreated(job.getCreated());
+        jobDO.setFinished(job.getFinished());
+
+        return jobDO;
+    }
+}
@@ -0,0 +1,25 @@
+package at.ac.tuwien.damap.rest.gdpr.service;
+
+import at.ac.tuwien.damap.enums.EExportJobStatus;
+import lombok.Data;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * State of a GDPR anonymisation, shared between the request threads and the anonymisation worker.
+ */
+@Data
+public class AnonymisationJob {
+
+    private final String id;
+    private final List<String> universityIds;
+    private final Date created = new Date();
+
+    private volatile EExportJobStatus status = EExportJobStatus.QUEUED;
+    // users of all finished batches
+    private volatile int processed;
+    private volatile long updatedRows;
+    private volatile String error;
+    private volatile Date finished;
+}
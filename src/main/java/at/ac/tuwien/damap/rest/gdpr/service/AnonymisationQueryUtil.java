@@ -0,0 +1,141 @@
+package at.ac.tuwien.damap.rest.gdpr.service;
+
+import at.ac.tuwien.damap.rest.gdpr.domain.GdprQuery;
+import lombok.experimental.UtilityClass;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.envers.boot.internal.EnversService;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.type.EntityType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@UtilityClass
+public class AnonymisationQueryUtil {
+
+    /**
+     * Builds the SQL statements anonymising the GDPR data of an entity for the users given as {@code :ids}
+     * parameter. Text fields marked as GDPR base or extended data and the key are set to null, in the entity
+     * table as well as in its Envers audit table. Entities joined through GDPR base or extended fields
+     * (e.g. ORCID identifiers) are anonymised the same way. Entities joined through GDPR context fields
+     * (e.g. the DMP) get a new version, so caches and editors relying on the version notice the change.
+     * <p>
+     * The statements have to run in the given order, the ones for joined entities find their rows by the key.
+     *
+     * @param query          GDPR query object of the entity, as built by {@link GdprQueryUtil#buildQueryObject}
+     * @param sessionFactory session factory to resolve table and column names
+     * @return native SQL update statements
+     */
+    public List<String> buildStatements(GdprQuery query, SessionFactoryImplementor sessionFactory) {
+        EnversService enversService = sessionFactory.getServiceRegistry().getService(EnversService.class);
+        AbstractEntityPersister persister = getPersister(sessionFactory, query.getRoot().getName());
+        AbstractEntityPersister auditPersister = getAuditPersister(sessionFactory, enversService, persister);
+        String key = column(persister, query.getKey());
+
+        List<String> statements = new ArrayList<>();
+
+        // Joined entities holding personal data
+        for (GdprQuery joinQ : concat(query.getBaseJoins(), query.getExtendedJoins())) {
+            AbstractEntityPersister joined = getPersister(sessionFactory, associatedEntityName(persister, joinQ));
+            List<String> columns = textColumns(joined, joinQ.getBase());
+            if (columns.isEmpty()) {
+                continue;
+            }
+            String references = referencing(persister, auditPersister, joinQ.getFieldName(), key);
+            statements.add(update(joined.getTableName(), nullify(columns, joined), identifier(joined) + " IN (" + references + ")"));
+            AbstractEntityPersister joinedAudit = getAuditPersister(sessionFactory, enversService, joined);
+            if (joinedAudit != null) {
+                statements.add(update(joinedAudit.getTableName(), nullify(columns, null),
+                        identifier(joined) + " IN (" + references + ")"));
+            }
+        }
+
+        // Context entities only get a new version
+        for (GdprQuery joinQ : concat(query.getContextJoins(), null)) {
+            AbstractEntityPersister joined = getPersister(sessionFactory, associatedEntityName(persister, joinQ));
+            if (joined.isVersioned()) {
+                String version = joined.getVersionColumnName();
+                statements.add(update(joined.getTableName(), List.of(version + " = " + version + " + 1"),
+                        identifier(joined) + " IN (" + referencing(persister, null, joinQ.getFieldName(), key) + ")"));
+            }
+        }
+
+        // The entity itself, the key last so the rows can no longer be found by it
+        List<String> columns = new ArrayList<>(textColumns(persister, concat(query.getBase(), query.getExtended())));
+        columns.add(key);
+        statements.add(update(persister.getTableName(), nullify(columns, persister), key + " IN (:ids)"));
+        if (auditPersister != null) {
+            statements.add(update(auditPersister.getTableName(), nullify(columns, null), key + " IN (:ids)"));
+        }
+        return statements;
+    }
+
+    private AbstractEntityPersister getPersister(SessionFactoryImplementor sessionFactory, String entityName) {
+        return (AbstractEntityPersister) sessionFactory.getMetamodel().entityPersister(entityName);
+    }
+
+    // null if the entity is not audited
+    private AbstractEntityPersister getAuditPersister(SessionFactoryImplementor sessionFactory,
+                                                     EnversService enversService, AbstractEntityPersister persister) {
+        if (enversService == null || !enversService.isEnabled()
+            || !enversService.getEntitiesConfigurations().isVersioned(persister.getEntityName())) {
+            return null;
+        }
+        return getPersister(sessionFactory,
+                enversService.getAuditEntitiesConfiguration().getAuditEntityName(persister.getEntityName()));
+    }
+
+    private String associatedEntityName(AbstractEntityPersister persister, GdprQuery joinQ) {
+        return ((EntityType) persister.getPropertyType(joinQ.getFieldName())).getAssociatedEntityName();
+    }
+
+    // ids of the joined rows, referenced by the current rows or any audited revision of the entity
+    private String referencing(AbstractEntityPersister persister, AbstractEntityPersister auditPersister,
+                               String fieldName, String key) {
+        String foreignKey = column(persister, fieldName);
+        String references = "SELECT " + foreignKey + " FROM " + persister.getTableName() + " WHERE " + key + " IN (:ids)";
+        if (auditPersister != null) {
+            references += " UNION SELECT " + foreignKey + " FROM " + auditPersister.getTableName()
+                          + " WHERE " + key + " IN (:ids)";
+        }
+        return references;
+    }
+
+    private List<String> textColumns(AbstractEntityPersister persister, List<String> properties) {
+        return properties.stream()
+                .filter(property -> String.class.equals(persister.getPropertyType(property).getReturnedClass()))
+                .map(property -> column(persister, property))
+                .collect(Collectors.toList());
+    }
+
+    // audit tables have no version column, the current rows get a new version
+    private List<String> nullify(List<String> columns, AbstractEntityPersister versioned) {
+        List<String> assignments = columns.stream().map(column -> column + " = NULL").collect(Collectors.toList());
+        if (versioned != null && versioned.isVersioned()) {
+            String version = versioned.getVersionColumnName();
+            assignments.add(version + " = " + version + " + 1");
+        }
+        return assignments;
+    }
+
+    private String update(String table, List<String> assignments, String where) {
+        return "UPDATE " + table + " SET " + String.join(", ", assignments) + " WHERE " + where;
+    }
+
+    private String column(AbstractEntityPersister persister, String property) {
+        return persister.getPropertyColumnNames(property)[0];
+    }
+
+    private String identifier(AbstractEntityPersister persister) {
+        return persister.getIdentifierColumnNames()[0];
+    }
+
+    private <T> List<T> concat(List<T> first, List<T> second) {
+        return Stream.of(first, second)
+                .filter(list -> list != null)
+                .flatMap(List::stream)
+                .collect(Collectors.toList());
+    }
+}
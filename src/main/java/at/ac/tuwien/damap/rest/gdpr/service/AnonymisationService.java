@@ -0,0 +1,164 @@
+package at.ac.tuwien.damap.rest.gdpr.service;
+
+import at.ac.tuwien.damap.conversion.RenderedDocumentCache;
+import at.ac.tuwien.damap.enums.EExportJobStatus;
+import at.ac.tuwien.damap.repo.GdprRepo;
+import at.ac.tuwien.damap.rest.dmp.service.DmpRevisionCache;
+import io.quarkus.arc.Arc;
+import io.quarkus.arc.ManagedContext;
+import io.quarkus.scheduler.Scheduled;
+import lombok.extern.jbosslog.JBossLog;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.persistence.EntityManagerFactory;
+import javax.transaction.Transactional;
+import javax.ws.rs.NotFoundException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/**
+ * Anonymises the GDPR data of users in the background, e.g. of staff members who left.
+ * The statements are derived from the same GDPR annotations used for reading the data and run set-based,
+ * for a batch of users at a time. Each batch is committed on its own, running the job again for the same users
+ * continues where a failed job stopped.
+ */
+@ApplicationScoped
+@JBossLog
+public class AnonymisationService {
+
+    @ConfigProperty(name = "damap.gdpr.anonymisation.batch-size", defaultValue = "100")
+    int batchSize;
+
+    @ConfigProperty(name = "damap.gdpr.anonymisation.ttl", defaultValue = "P1D")
+    Duration ttl;
+
+    @Inject
+    GdprRepo gdprRepo;
+
+    @Inject
+    EntityManagerFactory entityManagerFactory;
+
+    @Inject
+    DmpRevisionCache dmpRevisionCache;
+
+    @Inject
+    RenderedDocumentCache renderedDocumentCache;
+
+    private final Map<String, AnonymisationJob> jobs = new ConcurrentHashMap<>();
+
+    private List<String> statements;
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    void init() {
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        statements = GdprService.getGdprClasses(entityManagerFactory).stream()
+                .map(GdprQueryUtil::buildQueryObject)
+                .flatMap(query -> AnonymisationQueryUtil.buildStatements(query, sessionFactory).stream())
+                .collect(Collectors.toUnmodifiableList());
+
+        // one job at a time, so jobs for the same users do not update the same rows concurrently
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "damap-gdpr-anonymisation-1");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Queues the anonymisation of the given users.
+     *
+     * @param universityIds users to anonymise, blank and duplicate ids are ignored
+     * @return the queued job
+     */
+    public AnonymisationJob submit(List<String> universityIds) {
+        List<String> ids = universityIds.stream()
+                .filter(Objects::nonNull)
+                .map(String::trim)
+                .filter(id -> !id.isEmpty())
+                .distinct()
+                .collect(Collectors.toUnmodifiableList());
+        AnonymisationJob job = new AnonymisationJob(UUID.randomUUID().toString(), ids);
+        jobs.put(job.getId(), job);
+        executor.execute(() -> run(job));
+        log.info("Queued GDPR anonymisation job " + job.getId() + " for " + ids.size() + " users");
+        return job;
+    }
+
+    /**
+     * @param jobId the job id, as returned by {@link #submit}
+     * @return the job
+     * @throws NotFoundException if the job does not exist or expired
+     */
+    public AnonymisationJob getJob(String jobId) {
+        AnonymisationJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new NotFoundException("Anonymisation job " + jobId + " not found.");
+        }
+        return job;
+    }
+
+    // statements run for each batch, in order
+    List<String> getStatements() {
+        return statements;
+    }
+
+    @Scheduled(every = "1h", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void removeExpiredJobs() {
+        long expired = System.currentTimeMillis() - ttl.toMillis();
+        jobs.values().removeIf(job -> job.getFinished() != null && job.getFinished().getTime() < expired);
+    }
+
+    @Transactional
+    int anonymise(List<String> universityIds) {
+        return gdprRepo.executeUpdates(statements, universityIds);
+    }
+
+    private void run(AnonymisationJob job) {
+        // the database session needs a request context on a worker thread
+        ManagedContext requestContext = Arc.container().requestContext();
+        requestContext.activate();
+        try {
+            job.setStatus(EExportJobStatus.RUNNING);
+            List<String> ids = job.getUniversityIds();
+            for (int start = 0; start < ids.size(); start += batchSize) {
+                List<String> batch = new ArrayList<>(ids.subList(start, Math.min(start + batchSize, ids.size())));
+                job.setUpdatedRows(job.getUpdatedRows() + anonymise(batch));
+                // the audit rows changed, cached historic DMPs still hold the personal data
+                dmpRevisionCache.invalidateAll();
+                // rendered documents of the old DMP versions are unreachable, but still on disk
+                renderedDocumentCache.invalidateAll();
+                job.setProcessed(job.getProcessed() + batch.size());
+            }
+            job.setStatus(EExportJobStatus.DONE);
+            log.info("GDPR anonymisation job " + job.getId() + " finished, " + job.getUpdatedRows() + " rows updated");
+        } catch (Exception e) {
+            log.error("GDPR anonymisation job " + job.getId() + " failed after " + job.getProcessed() + " users", e);
+            job.setError(e.getMessage());
+            job.setStatus(EExportJobStatus.FAILED);
+        } finally {
+            job.setFinished(new Date());
+            requestContext.terminate();
+        }
+    }
+}
@@ -2,53 +2,224 @@ package at.ac.tuwien.damap.rest.gdpr.service;
 
 import at.ac.tuwien.damap.annotations.gdpr.*;
 import at.ac.tuwien.damap.repo.GdprRepo;
+import at.ac.tuwien.damap.rest.gdpr.domain.GdprExportManifestDO;
 import at.ac.tuwien.damap.rest.gdpr.domain.GdprResult;
 import at.ac.tuwien.damap.rest.gdpr.domain.GdprQuery;
 import at.ac.tuwien.damap.rest.gdpr.domain.HqlQuery;
-import org.hibernate.proxy.HibernateProxy;
-import org.reflections.Reflections;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.quarkus.arc.Arc;
+import io.quarkus.arc.ManagedContext;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.hibernate.ScrollableResults;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.metamodel.EntityType;
+import javax.transaction.Transactional;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 @ApplicationScoped
 public class GdprService {
 
+    public static final String MANIFEST = "manifest.json";
+
+    @ConfigProperty(name = "damap.gdpr.threads", defaultValue = "4")
+    int threads;
+
+    @ConfigProperty(name = "damap.gdpr.export.fetch-size", defaultValue = "100")
+    int fetchSize;
+
     @Inject
     GdprRepo gdprRepo;
 
+    @Inject
+    EntityManagerFactory entityManagerFactory;
+
+    @Inject
+    ObjectMapper objectMapper;
+
     private List<HqlQuery> baseQueries;
     private List<HqlQuery> extendedQueries;
 
-    public GdprService() {
-        this.init();
+    private ExecutorService executor;
+
+    @FunctionalInterface
+    public interface GdprResultWriter {
+        void write(GdprResult result) throws IOException;
     }
 
     public List<GdprResult> getGdprBaseData(String universityId) {
-        return gdprRepo.getGdprDataByUniversityId(baseQueries, universityId);
+        return getGdprData(baseQueries, universityId);
     }
 
     public List<GdprResult> getGdprExtendedData(String universityId) {
-        return gdprRepo.getGdprDataByUniversityId(extendedQueries, universityId);
+        return getGdprData(extendedQueries, universityId);
     }
 
-    private void init() {
-        String packageName = "at.ac.tuwien.damap.domain";
-        Reflections reflections = new Reflections(packageName);
+    /**
+     * Queries the GDPR data of all entities in parallel, each on its own connection, and passes the result
+     * of every entity to the writer as soon as it and the results before it are available.
+     *
+     * @param universityId user to get the data of
+     * @param extended     whether to include the extended GDPR data
+     * @param writer       receives the result of each entity, in the same order as {@link #getGdprBaseData}
+     */
+    public void writeGdprData(String universityId, boolean extended, GdprResultWriter writer) throws IOException {
+        List<Future<GdprResult>> results = submit(extended ? extendedQueries : baseQueries, universityId);
+        try {
+            for (Future<GdprResult> result : results) {
+                writer.write(get(result));
+            }
+        } finally {
+            results.forEach(result -> result.cancel(true));
+        }
+    }
+
+    /**
+     * Writes the GDPR data as ZIP archive with one JSON file per entity, followed by a manifest.json listing
+     * the number of rows of every entity. Rows are read through a database cursor and written one by one,
+     * so memory use does not depend on the amount of data.
+     *
+     * @param universityId user to get the data of
+     * @param extended     whether to include the extended GDPR data
+     * @param os           target of the archive, is not closed
+     */
+    @Transactional
+    public void export(String universityId, boolean extended, OutputStream os) throws IOException {
+        GdprExportManifestDO manifest = new GdprExportManifestDO();
+        manifest.setCreated(new Date());
+        manifest.setExtended(extended);
 
-        Set<Class<?>> gdprClasses = reflections.getTypesAnnotatedWith(Gdpr.class);
+        ZipOutputStream zip = new ZipOutputStream(os);
+        for (HqlQuery query : extended ? extendedQueries : baseQueries) {
+            GdprExportManifestDO.Entry entry = new GdprExportManifestDO.Entry();
+            entry.setEntity(query.getEntityName());
+            entry.setFilename(query.getEntityName() + ".json");
+            zip.putNextEntry(new ZipEntry(entry.getFilename()));
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(zip)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                 ScrollableResults rows = gdprRepo.scrollGdprEntityDataByUniversityId(query, universityId, fetchSize)) {
+                generator.writeStartArray();
+                while (rows.next()) {
+                    writeRow(generator, (Map<?, ?>) rows.get(0));
+                    entry.setRows(entry.getRows() + 1);
+                }
+                generator.writeEndArray();
+            }
+            zip.closeEntry();
+            manifest.getEntities().add(entry);
+        }
 
-        // Ignore HibernateProxy classes
-        gdprClasses.removeIf(HibernateProxy.class::isAssignableFrom);
+        zip.putNextEntry(new ZipEntry(MANIFEST));
+        zip.write(objectMapper.writeValueAsBytes(manifest));
+        zip.closeEntry();
+        zip.finish();
+    }
 
-        // Get fields containing GDPR data
-        baseQueries = new ArrayList<>();
-        extendedQueries = new ArrayList<>();
-        for (Class<?> gdprClass : gdprClasses) {
+    @PostConstruct
+    void init() {
+        List<HqlQuery> base = new ArrayList<>();
+        List<HqlQuery> extended = new ArrayList<>();
+        for (Class<?> gdprClass : getGdprClasses(entityManagerFactory)) {
             GdprQuery query = GdprQueryUtil.buildQueryObject(gdprClass);
-            baseQueries.add(HqlQueryUtil.buildHqlQuery(query, false));
-            extendedQueries.add(HqlQueryUtil.buildHqlQuery(query, true));
+            base.add(HqlQueryUtil.buildHqlQuery(query, false));
+            extended.add(HqlQueryUtil.buildHqlQuery(query, true));
+        }
+        baseQueries = List.copyOf(base);
+        extendedQueries = List.copyOf(extended);
+
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "damap-gdpr-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Entities holding GDPR data, sorted by name. Quarkus discovers the entities at build time, so they are taken
+     * from the persistence metamodel instead of scanning the classpath.
+     *
+     * @param entityManagerFactory factory of the persistence unit containing the entities
+     * @return entity classes annotated with {@link Gdpr}
+     */
+    static List<Class<?>> getGdprClasses(EntityManagerFactory entityManagerFactory) {
+        return entityManagerFactory.getMetamodel().getEntities().stream()
+                .map(EntityType::getJavaType)
+                .filter(entityClass -> entityClass.isAnnotationPresent(Gdpr.class))
+                .sorted(Comparator.comparing(Class::getSimpleName))
+                .collect(Collectors.toList());
+    }
+
+    private List<GdprResult> getGdprData(List<HqlQuery> queries, String universityId) {
+        List<GdprResult> gdprData = new ArrayList<>();
+        for (Future<GdprResult> result : submit(queries, universityId)) {
+            gdprData.add(get(result));
+        }
+        return gdprData;
+    }
+
+    private List<Future<GdprResult>> submit(List<HqlQuery> queries, String universityId) {
+        List<Future<GdprResult>> results = new ArrayList<>();
+        for (HqlQuery query : queries) {
+            results.add(executor.submit(() -> query(query, universityId)));
+        }
+        return results;
+    }
+
+    // runs on the GDPR pool, the request context gives every query its own session and connection
+    private GdprResult query(HqlQuery query, String universityId) {
+        ManagedContext requestContext = Arc.container().requestContext();
+        requestContext.activate();
+        try {
+            return gdprRepo.getGdprEntityDataByUniversityId(query, universityId);
+        } finally {
+            requestContext.terminate();
+        }
+    }
+
+    private void writeRow(JsonGenerator generator, Map<?, ?> row) throws IOException {
+        generator.writeStartObject();
+        for (Map.Entry<?, ?> field : row.entrySet()) {
+            // Skip empty fields (e.g. if Contributor -> personId_identifier = null)
+            if (field.getValue() != null) {
+                generator.writeFieldName(field.getKey().toString());
+                generator.writeObject(field.getValue());
+            }
+        }
+        generator.writeEndObject();
+    }
+
+    private GdprResult get(Future<GdprResult> result) {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while reading GDPR data", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
         }
     }
 
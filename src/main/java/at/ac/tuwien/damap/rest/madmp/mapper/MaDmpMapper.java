@@ -2,6 +2,7 @@ package at.ac.tuwien.damap.rest.madmp.mapper;
 
 import at.ac.tuwien.damap.enums.*;
 import at.ac.tuwien.damap.rest.dmp.domain.*;
+import at.ac.tuwien.damap.r3data.dto.RepositoryRecord;
 import at.ac.tuwien.damap.rest.dmp.mapper.MapperService;
 import at.ac.tuwien.damap.rest.madmp.dto.*;
 import at.ac.tuwien.damap.rest.storage.InternalStorageDO;
@@ -9,13 +10,14 @@ import lombok.experimental.UtilityClass;
 import lombok.extern.jbosslog.JBossLog;
 import org.re3data.schema._2_2.Certificates;
 import org.re3data.schema._2_2.PidSystems;
-import org.re3data.schema._2_2.Re3Data;
 import org.re3data.schema._2_2.Yesno;
 
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -43,9 +45,16 @@ public class MaDmpMapper {
 
         dmp.setCreated(dmpDO.getCreated());
 
+        // every repository is looked up once, no matter how many datasets it hosts
+        Set<String> repositoryIds = dmpDO.getRepositories().stream()
+                .map(RepositoryDO::getRepositoryId)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        Map<String, RepositoryRecord> re3DataRepositories = mapperService.getRe3DataRepositories(repositoryIds);
+
         List<Dataset> datasetList = new ArrayList<>();
         dmpDO.getDatasets()
-                .forEach(datasetDO -> datasetList.add(mapToMaDmp(dmpDO, datasetDO, new Dataset(), mapperService)));
+                .forEach(datasetDO -> datasetList.add(
+                        mapToMaDmp(dmpDO, datasetDO, new Dataset(), mapperService, re3DataRepositories)));
         dmp.setDataset(datasetList);
 
         dmp.setDescription(dmpDO.getDescription());
@@ -127,7 +136,8 @@ public class MaDmpMapper {
         return cost;
     }
 
-    public Dataset mapToMaDmp(DmpDO dmpDO, DatasetDO datasetDO, Dataset dataset, MapperService mapperService) {
+    public Dataset mapToMaDmp(DmpDO dmpDO, DatasetDO datasetDO, Dataset dataset, MapperService mapperService,
+                              Map<String, RepositoryRecord> re3DataRepositories) {
 
         dataset.setDataQualityAssurance(null);
         dataset.setDatasetId(null);
@@ -138,7 +148,7 @@ public class MaDmpMapper {
             hostDO.getDatasets().contains(datasetDO.getReferenceHash())
         ).forEach(repositoryDO -> {
             Distribution distribution = mapToMaDmp(datasetDO, new Distribution());
-            distributionList.add(mapToMaDmpFromRepository(repositoryDO, distribution, mapperService));
+            distributionList.add(mapToMaDmpFromRepository(repositoryDO, distribution, re3DataRepositories));
         });
         dmpDO.getStorage().stream().filter(hostDO ->
                 hostDO.getDatasets().contains(datasetDO.getReferenceHash())
@@ -201,9 +211,10 @@ public class MaDmpMapper {
         return types.stream().map(EDataType::getValue).collect(Collectors.toList());
     }
 
-    public Distribution mapToMaDmpFromRepository(RepositoryDO repositoryDO, Distribution distribution, MapperService mapperService) {
+    public Distribution mapToMaDmpFromRepository(RepositoryDO repositoryDO, Distribution distribution,
+                                                 Map<String, RepositoryRecord> re3DataRepositories) {
 
-        Re3Data.Repository repository = mapperService.getRe3DataRepository(repositoryDO.getRepositoryId());
+        RepositoryRecord repository = re3DataRepositories.get(repositoryDO.getRepositoryId());
         distribution.setAccessUrl(repository.getRepositoryURL());
         distribution.setHost(mapToMaDmpFromRepository(repository, new Host()));
         return distribution;
@@ -235,31 +246,29 @@ public class MaDmpMapper {
         }
     }
 
-    public Host mapToMaDmpFromRepository(Re3Data.Repository repository, Host host) {
+    public Host mapToMaDmpFromRepository(RepositoryRecord repository, Host host) {
 
         host.setAvailability(null);
         host.setBackupFrequency(null);
         host.setBackupType(null);
-        host.setCertifiedWith(getCertifiedWith(repository.getCertificate()));
-        if (repository.getDescription() != null)
-            host.setDescription(repository.getDescription().getValue());
+        host.setCertifiedWith(getCertifiedWith(repository.getCertificates()));
+        host.setDescription(repository.getDescription());
         host.setGeoLocation(null);
 
         List<PidSystem> pidSystemList = new ArrayList<>();
-        repository.getPidSystem().forEach(repoPidSystems -> 
+        repository.getPidSystems().forEach(repoPidSystems ->
             pidSystemList.add(getPidSystem(repoPidSystems))
         );
         host.setPidSystem(pidSystemList);
-        repository.getType().stream().findFirst().ifPresent(repositoryTypes -> host.setStorageType(repositoryTypes.value()));
+        host.setStorageType(repository.getType());
         host.setSupportVersioning(getSupportVersioning(repository.getVersioning()));
-        if (repository.getRepositoryName() != null)
-            host.setTitle(repository.getRepositoryName().getValue());
+        host.setTitle(repository.getName());
         if (repository.getRepositoryURL() != null)
             host.setUrl(URI.create(repository.getRepositoryURL()));
         return host;
     }
 
-    public Host.CertifiedWith getCertifiedWith(List<Certificates> certificates) {
+    public Host.CertifiedWith getCertifiedWith(Collection<Certificates> certificates) {
         //This currently returns the very first available certificate it can map to.
         for (Certificates certificate : certificates) {
             switch (certificate) {
@@ -1,17 +1,34 @@
 package at.ac.tuwien.damap.rest.madmp.service;
 
-import at.ac.tuwien.damap.r3data.RepositoriesService;
 import at.ac.tuwien.damap.repo.DmpRepo;
 import at.ac.tuwien.damap.rest.dmp.domain.DmpDO;
 import at.ac.tuwien.damap.rest.dmp.mapper.DmpDOMapper;
 import at.ac.tuwien.damap.rest.dmp.mapper.MapperService;
 import at.ac.tuwien.damap.rest.madmp.dto.Dmp;
 import at.ac.tuwien.damap.rest.madmp.mapper.MaDmpMapper;
+import io.quarkus.arc.Arc;
+import io.quarkus.arc.ManagedContext;
+import io.quarkus.narayana.jta.runtime.TransactionConfiguration;
+import lombok.extern.jbosslog.JBossLog;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.hibernate.ScrollableResults;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
+import javax.transaction.Transactional;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @ApplicationScoped
+@JBossLog
 public class MaDmpService {
 
     @Inject
@@ -20,8 +37,90 @@ public class MaDmpService {
     @Inject
     MapperService mapperService;
 
+    @ConfigProperty(name = "damap.madmp.export.batch-size", defaultValue = "100")
+    int batchSize;
+
+    @ConfigProperty(name = "damap.madmp.export.threads", defaultValue = "4")
+    int threads;
+
+    private ExecutorService executor;
+
+    @FunctionalInterface
+    public interface MaDmpWriter {
+        void write(Dmp maDmp) throws IOException;
+    }
+
+    @PostConstruct
+    void init() {
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "damap-madmp-export-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
     public Dmp getById(long id) {
         // TODO: check permission
         return MaDmpMapper.mapToMaDmp(DmpDOMapper.mapEntityToDO(dmpRepo.findById(id), new DmpDO()), new Dmp(), mapperService);
     }
+
+    /**
+     * Maps every DMP to a maDMP and passes them to the writer, ordered by id.
+     * DMPs are read in batches through a database cursor and the persistence context is cleared after each batch,
+     * so memory use does not depend on the number of DMPs. The maDMPs of a batch are mapped in parallel.
+     * DMPs that can not be mapped are logged and skipped.
+     *
+     * @param writer receives the maDMPs one by one
+     */
+    @Transactional
+    @TransactionConfiguration(timeoutFromConfigProperty = "damap.madmp.export.transaction-timeout")
+    public void exportAll(MaDmpWriter writer) throws IOException {
+        List<DmpDO> batch = new ArrayList<>(batchSize);
+        try (ScrollableResults results = dmpRepo.scrollAll(batchSize)) {
+            while (results.next()) {
+                batch.add(DmpDOMapper.mapEntityToDO((at.ac.tuwien.damap.domain.Dmp) results.get(0), new DmpDO()));
+                if (batch.size() == batchSize) {
+                    writeBatch(batch, writer);
+                    batch.clear();
+                    dmpRepo.getEntityManager().clear();
+                }
+            }
+        }
+        writeBatch(batch, writer);
+    }
+
+    private void writeBatch(List<DmpDO> batch, MaDmpWriter writer) throws IOException {
+        List<Future<Dmp>> maDmps = new ArrayList<>(batch.size());
+        for (DmpDO dmpDO : batch) {
+            maDmps.add(executor.submit(() -> mapInRequestContext(dmpDO)));
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            try {
+                writer.write(maDmps.get(i).get());
+            } catch (ExecutionException e) {
+                log.error("Could not map DMP with id=" + batch.get(i).getId() + " to maDMP", e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                maDmps.forEach(maDmp -> maDmp.cancel(true));
+                throw new IOException("maDMP export interrupted", e);
+            }
+        }
+    }
+
+    // storage lookups of the mapper need their own database session on a worker thread
+    private Dmp mapInRequestContext(DmpDO dmpDO) {
+        ManagedContext requestContext = Arc.container().requestContext();
+        requestContext.activate();
+        try {
+            return MaDmpMapper.mapToMaDmp(dmpDO, new Dmp(), mapperService);
+        } finally {
+            requestContext.terminate();
+        }
+    }
 }
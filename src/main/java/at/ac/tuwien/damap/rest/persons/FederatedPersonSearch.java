@@ -0,0 +1,199 @@
+package at.ac.tuwien.damap.rest.persons;
+
+import at.ac.tuwien.damap.enums.EIdentifierType;
+import at.ac.tuwien.damap.rest.PersonServiceBroker;
+import at.ac.tuwien.damap.rest.base.ResultList;
+import at.ac.tuwien.damap.rest.dmp.domain.ContributorDO;
+import at.ac.tuwien.damap.rest.dmp.domain.IdentifierDO;
+import lombok.extern.jbosslog.JBossLog;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.resteasy.specimpl.MultivaluedMapImpl;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.ws.rs.core.MultivaluedMap;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Searches all configured person services in parallel. Results are merged as the services respond, persons found
+ * by several services are listed once. Services that do not respond within damap.persons.federated.timeout are
+ * left out, so a slow service does not delay the results of the others.
+ */
+@ApplicationScoped
+@JBossLog
+public class FederatedPersonSearch {
+
+    private static final String ORCID_PREFIX = "https://orcid.org/";
+
+    @ConfigProperty(name = "damap.persons.federated.threads", defaultValue = "8")
+    int threads;
+
+    @ConfigProperty(name = "damap.persons.federated.timeout", defaultValue = "PT3S")
+    Duration timeout;
+
+    @Inject
+    PersonServiceBroker personServiceBroker;
+
+    @Inject
+    PersonSearchCache personSearchCache;
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    void init() {
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "damap-person-search-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Runs the search on all person services and reports the merged results whenever a service responded,
+     * failed or timed out. The last reported result is complete.
+     *
+     * @param queryParams query parameters of the search, the searchService parameter is ignored
+     * @param userId      user searching, for rate limiting
+     * @param listener    receives the partial results, called on the calling thread
+     */
+    public void search(MultivaluedMap<String, String> queryParams, String userId,
+                       Consumer<FederatedSearchResultDO> listener) {
+        Map<String, PersonService> services = personServiceBroker.getServices();
+        CompletionService<ResultList<ContributorDO>> completionService = new ExecutorCompletionService<>(executor);
+        Map<Future<ResultList<ContributorDO>>, String> pending = new LinkedHashMap<>();
+        services.forEach((key, service) -> {
+            MultivaluedMap<String, String> serviceParams = new MultivaluedMapImpl<>();
+            serviceParams.putAll(queryParams);
+            serviceParams.putSingle("searchService", key);
+            pending.put(completionService.submit(() -> personSearchCache.search(key, service, serviceParams, userId)),
+                    key);
+        });
+
+        Merger merger = new Merger();
+        long deadline = System.nanoTime() + timeout.toNanos();
+        try {
+            while (!pending.isEmpty()) {
+                Future<ResultList<ContributorDO>> done = completionService.poll(deadline - System.nanoTime(),
+                        TimeUnit.NANOSECONDS);
+                if (done == null) {
+                    break;
+                }
+                String service = pending.remove(done);
+                FederatedSearchResultDO.Status status = FederatedSearchResultDO.Status.OK;
+                try {
+                    ResultList<ContributorDO> result = done.get();
+                    if (result != null && result.getItems() != null) {
+                        result.getItems().forEach(merger::add);
+                    }
+                } catch (ExecutionException e) {
+                    log.warnv("Person search of service {0} failed: {1}", service, e.getCause().toString());
+                    status = FederatedSearchResultDO.Status.FAILED;
+                }
+                listener.accept(createResult(service, status, merger, pending));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // remaining services timed out. Their searches are not interrupted, an interrupted search fails and the
+        // result of the slow service still fills the person search cache for the next search.
+        List<String> timedOut = new ArrayList<>(pending.values());
+        pending.keySet().forEach(future -> future.cancel(false));
+        for (String service : timedOut) {
+            log.warnv("Person search of service {0} timed out after {1}", service, timeout);
+            pending.values().remove(service);
+            listener.accept(createResult(service, FederatedSearchResultDO.Status.TIMEOUT, merger, pending));
+        }
+    }
+
+    private FederatedSearchResultDO createResult(String service, FederatedSearchResultDO.Status status,
+                                                 Merger merger, Map<?, String> pending) {
+        FederatedSearchResultDO result = new FederatedSearchResultDO();
+        result.setService(service);
+        result.setStatus(status);
+        result.setItems(new ArrayList<>(merger.items));
+        result.setPending(new ArrayList<>(pending.values()));
+        result.setComplete(pending.isEmpty());
+        return result;
+    }
+
+    // Merges persons found by several services by ORCID iD or university id, keeping the first found details.
+    static class Merger {
+        final List<ContributorDO> items = new ArrayList<>();
+        private final Map<String, ContributorDO> byKey = new HashMap<>();
+
+        void add(ContributorDO contributor) {
+            List<String> keys = keys(contributor);
+            ContributorDO existing = keys.stream().map(byKey::get).filter(c -> c != null).findFirst().orElse(null);
+            if (existing == null) {
+                ContributorDO copy = new ContributorDO();
+                merge(copy, contributor);
+                items.add(copy);
+                existing = copy;
+            } else {
+                merge(existing, contributor);
+            }
+            for (String key : keys(existing)) {
+                byKey.putIfAbsent(key, existing);
+            }
+        }
+
+        private static List<String> keys(ContributorDO contributor) {
+            List<String> keys = new ArrayList<>();
+            IdentifierDO personId = contributor.getPersonId();
+            if (personId != null && personId.getType() == EIdentifierType.ORCID && personId.getIdentifier() != null) {
+                String orcid = personId.getIdentifier().trim();
+                if (orcid.startsWith(ORCID_PREFIX)) {
+                    orcid = orcid.substring(ORCID_PREFIX.length());
+                }
+                keys.add("orcid:" + orcid.toUpperCase(Locale.ROOT));
+            }
+            if (contributor.getUniversityId() != null && !contributor.getUniversityId().isBlank()) {
+                keys.add("university:" + contributor.getUniversityId().trim());
+            }
+            return keys;
+        }
+
+        private static void merge(ContributorDO target, ContributorDO source) {
+            if (target.getUniversityId() == null)
+                target.setUniversityId(source.getUniversityId());
+            if (target.getPersonId() == null)
+                target.setPersonId(source.getPersonId());
+            if (target.getFirstName() == null)
+                target.setFirstName(source.getFirstName());
+            if (target.getLastName() == null)
+                target.setLastName(source.getLastName());
+            if (target.getMbox() == null)
+                target.setMbox(source.getMbox());
+            if (target.getAffiliation() == null)
+                target.setAffiliation(source.getAffiliation());
+            if (target.getAffiliationId() == null)
+                target.setAffiliationId(source.getAffiliationId());
+            if (target.getRoleInProject() == null)
+                target.setRoleInProject(source.getRoleInProject());
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package at.ac.tuwien.damap.rest.persons;
+
+import at.ac.tuwien.damap.rest.dmp.domain.ContributorDO;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Partial result of a federated person search, sent whenever one of the person services responded
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class FederatedSearchResultDO {
+
+    // query value of the person service that responded
+    private String service;
+    private Status status;
+    // merged results of all services that responded so far
+    private List<ContributorDO> items = new ArrayList<>();
+    // person services that did not respond yet
+    private List<String> pending = new ArrayList<>();
+    private boolean complete;
+
+    public enum Status {
+        OK, FAILED, TIMEOUT
+    }
+}
@@ -0,0 +1,218 @@
+package at.ac.tuwien.damap.rest.persons;
+
+import at.ac.tuwien.damap.rest.base.Pagination;
+import at.ac.tuwien.damap.rest.base.ResultList;
+import at.ac.tuwien.damap.rest.base.Search;
+import at.ac.tuwien.damap.rest.dmp.domain.ContributorDO;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.Value;
+import lombok.extern.jbosslog.JBossLog;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Caches person search results in front of the configured {@link PersonService}s, since the frontend searches
+ * on every keystroke of the autocomplete.
+ * <ul>
+ *     <li>Results are cached by search service, normalised query and page.</li>
+ *     <li>Empty results are not cached, since services may report an outage as an empty result.</li>
+ *     <li>Identical searches running at the same time share one request to the search service.</li>
+ *     <li>Requests to the search services are rate limited per user.</li>
+ *     <li>Failures of the search services are reported as 502, not as the status the service responded with.</li>
+ * </ul>
+ */
+@ApplicationScoped
+@JBossLog
+public class PersonSearchCache {
+
+    @ConfigProperty(name = "damap.persons.search.cache-ttl", defaultValue = "PT10M")
+    Duration cacheTtl;
+
+    @ConfigProperty(name = "damap.persons.search.cache-max-size", defaultValue = "5000")
+    long cacheMaxSize;
+
+    @ConfigProperty(name = "damap.persons.search.rate-limit.requests", defaultValue = "20")
+    int rateLimitRequests;
+
+    @ConfigProperty(name = "damap.persons.search.rate-limit.period", defaultValue = "PT10S")
+    Duration rateLimitPeriod;
+
+    @ConfigProperty(name = "damap.persons.search.wait-timeout", defaultValue = "PT30S")
+    Duration waitTimeout;
+
+    private Cache<Key, Entry> results;
+
+    private final Map<Key, CompletableFuture<Entry>> inFlight = new ConcurrentHashMap<>();
+
+    private Cache<String, TokenBucket> rateLimits;
+
+    @PostConstruct
+    void init() {
+        results = Caffeine.newBuilder()
+                .expireAfterWrite(cacheTtl)
+                .maximumSize(cacheMaxSize)
+                .build();
+        rateLimits = Caffeine.newBuilder()
+                .expireAfterAccess(rateLimitPeriod.multipliedBy(2))
+                .build();
+    }
+
+    /**
+     * @param serviceKey  the searchService query parameter
+     * @param service     the person service selected for the key
+     * @param queryParams query parameters of the search
+     * @param userId      user searching, for rate limiting
+     * @return results of the search service, possibly from the cache
+     * @throws WebApplicationException with status 429 if the user sent too many searches to the search service,
+     *                                  502 if the search service failed,
+     *                                  504 if an identical search running at the same time did not finish in time
+     */
+    public ResultList<ContributorDO> search(String serviceKey, PersonService service,
+                                            MultivaluedMap<String, String> queryParams, String userId) {
+        Search search = Search.fromMap(queryParams);
+        String query = normalize(search.getQuery());
+        Pagination pagination = search.getPagination();
+        Key key = new Key(Objects.toString(serviceKey, ""), query, pagination.getPage(), pagination.getPerPage());
+
+        Entry cached = results.getIfPresent(key);
+        if (cached != null) {
+            return cached.toResultList(search);
+        }
+
+        CompletableFuture<Entry> loading = new CompletableFuture<>();
+        CompletableFuture<Entry> running = inFlight.putIfAbsent(key, loading);
+        if (running == null) {
+            // this request runs the search, concurrent requests for the same key wait for its result
+            try {
+                acquire(userId);
+                Entry entry = Entry.of(searchService(serviceKey, service, queryParams));
+                if (!entry.items.isEmpty()) {
+                    results.put(key, entry);
+                }
+                loading.complete(entry);
+                return entry.toResultList(search);
+            } catch (Throwable e) {
+                // failed searches are not cached, waiting requests fail as well
+                loading.completeExceptionally(e);
+                throw e;
+            } finally {
+                inFlight.remove(key, loading);
+            }
+        }
+
+        try {
+            return running.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS).toResultList(search);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new WebApplicationException("Person search did not finish in time.", Response.Status.GATEWAY_TIMEOUT);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WebApplicationException("Person search was interrupted.", Response.Status.SERVICE_UNAVAILABLE);
+        }
+    }
+
+    private ResultList<ContributorDO> searchService(String serviceKey, PersonService service,
+                                                    MultivaluedMap<String, String> queryParams) {
+        try {
+            return service.search(queryParams);
+        } catch (RuntimeException e) {
+            log.warnv("Person search of service {0} failed: {1}", serviceKey, e.toString());
+            throw new WebApplicationException("Person search service " + serviceKey + " is not available.", e,
+                    Response.Status.BAD_GATEWAY);
+        }
+    }
+
+    private void acquire(String userId) {
+        TokenBucket bucket = rateLimits.get(Objects.toString(userId, ""),
+                user -> new TokenBucket(rateLimitRequests, rateLimitPeriod));
+        if (!bucket.tryAcquire()) {
+            log.warnv("Person search rate limit exceeded by user {0}", userId);
+            throw new WebApplicationException("Too many searches, try again later.",
+                    Response.Status.TOO_MANY_REQUESTS);
+        }
+    }
+
+    static String normalize(String query) {
+        return query == null ? "" : query.trim().toLowerCase(Locale.ROOT).replaceAll("\\s+", " ");
+    }
+
+    @Value
+    static class Key {
+        String service;
+        String query;
+        int page;
+        int perPage;
+    }
+
+    static class Entry {
+        final List<ContributorDO> items;
+        final Integer numTotalItems;
+
+        Entry(List<ContributorDO> items, Integer numTotalItems) {
+            this.items = items;
+            this.numTotalItems = numTotalItems;
+        }
+
+        static Entry of(ResultList<ContributorDO> resultList) {
+            List<ContributorDO> items = resultList == null || resultList.getItems() == null
+                    ? List.of() : List.copyOf(resultList.getItems());
+            Integer numTotalItems = resultList == null || resultList.getSearch() == null
+                    || resultList.getSearch().getPagination() == null
+                    ? null : resultList.getSearch().getPagination().getNumTotalItems();
+            return new Entry(items, numTotalItems);
+        }
+
+        ResultList<ContributorDO> toResultList(Search search) {
+            search.getPagination().setNumTotalItems(numTotalItems);
+            return ResultList.fromItemsAndSearch(items, search);
+        }
+    }
+
+    // allows a number of requests per period, refilled continuously
+    static class TokenBucket {
+        private final int capacity;
+        private final double tokensPerNano;
+        private double tokens;
+        private long refilled = System.nanoTime();
+
+        TokenBucket(int capacity, Duration period) {
+            this.capacity = capacity;
+            this.tokensPerNano = (double) capacity / period.toNanos();
+            this.tokens = capacity;
+        }
+
+        synchronized boolean tryAcquire() {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - refilled) * tokensPerNano);
+            refilled = now;
+            if (tokens < 1) {
+                return false;
+            }
+            tokens--;
+            return true;
+        }
+    }
+}
@@ -1,18 +1,32 @@
 package at.ac.tuwien.damap.rest.persons.orcid;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 import javax.ws.rs.core.MultivaluedMap;
 
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.eclipse.microprofile.rest.client.inject.RestClient;
 
 import at.ac.tuwien.damap.rest.base.ResultList;
 import at.ac.tuwien.damap.rest.base.Search;
 import at.ac.tuwien.damap.rest.dmp.domain.ContributorDO;
 import at.ac.tuwien.damap.rest.persons.PersonService;
+import at.ac.tuwien.damap.rest.persons.orcid.models.ORCIDRecord;
+import io.quarkus.cache.CacheResult;
 import lombok.extern.jbosslog.JBossLog;
 
 @ApplicationScoped
@@ -23,28 +37,84 @@ public class ORCIDPersonServiceImpl implements PersonService {
     @RestClient
     OrcidPersonService orcidRestClient;
 
+    @ConfigProperty(name = "damap.orcid.lookup-threads", defaultValue = "4")
+    int lookupThreads;
+
+    private ExecutorService lookupExecutor;
+
+    @PostConstruct
+    void init() {
+        AtomicInteger threadCount = new AtomicInteger();
+        lookupExecutor = Executors.newFixedThreadPool(lookupThreads, runnable -> {
+            Thread thread = new Thread(runnable, "damap-orcid-lookup-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        lookupExecutor.shutdownNow();
+    }
+
     @Override
     public ContributorDO read(String id, MultivaluedMap<String, String> queryParams) {
-        return ORCIDMapper.mapRecordEntityToPersonDO(orcidRestClient.get(id), new ContributorDO());
+        return ORCIDMapper.mapRecordEntityToPersonDO(getRecord(id), new ContributorDO());
+    }
+
+    /**
+     * Cached for quarkus.cache.caffeine."orcid".expire-after-write. Concurrent calls for the same iD wait for
+     * the first one instead of calling ORCID again. Failed lookups are not cached.
+     *
+     * @param orcid the ORCID iD
+     * @return the public ORCID record
+     */
+    @CacheResult(cacheName = "orcid")
+    public ORCIDRecord getRecord(String orcid) {
+        return orcidRestClient.get(orcid);
     }
 
+    /**
+     * Reads several persons concurrently, at most damap.orcid.lookup-threads at a time.
+     *
+     * @param ids distinct ORCID iDs
+     * @return the persons by iD, those that could not be read are left out
+     */
+    public Map<String, ContributorDO> readAll(Collection<String> ids) {
+        Map<String, Future<ContributorDO>> lookups = new LinkedHashMap<>();
+        ids.forEach(id -> lookups.put(id, lookupExecutor.submit(() -> read(id))));
+
+        Map<String, ContributorDO> contributors = new HashMap<>();
+        for (Map.Entry<String, Future<ContributorDO>> lookup : lookups.entrySet()) {
+            try {
+                contributors.put(lookup.getKey(), lookup.getValue().get());
+            } catch (ExecutionException e) {
+                log.warnv("Could not fetch ORCID record for identifier {0}: {1}", lookup.getKey(), e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                lookups.values().forEach(pending -> pending.cancel(true));
+                break;
+            }
+        }
+        return contributors;
+    }
+
+    /**
+     * Failures are passed on, so they are not mistaken for a search without results.
+     */
     @Override
     public ResultList<ContributorDO> search(MultivaluedMap<String, String> queryParams) {
         Search search = Search.fromMap(queryParams);
 
         List<ContributorDO> contributors = null;
-        try {
-            var orcidSearch = orcidRestClient.getAll(search.getQuery(), search.getPagination().getPerPage());
-
-            if (orcidSearch.getNumFound() > 0 && orcidSearch.getPersons() != null) {
-                contributors = orcidSearch.getPersons().stream().map(o -> {
-                    var c = new ContributorDO();
-                    ORCIDMapper.mapExpandedSearchPersonEntityToDO(o, c);
-                    return c;
-                }).collect(Collectors.toList());
-            }
-        } catch (Exception e) {
-            log.error("Issue searching ORCID persons", e);
+        var orcidSearch = orcidRestClient.getAll(search.getQuery(), search.getPagination().getPerPage());
+
+        if (orcidSearch.getNumFound() > 0 && orcidSearch.getPersons() != null) {
+            contributors = orcidSearch.getPersons().stream().map(o -> {
+                var c = new ContributorDO();
+                ORCIDMapper.mapExpandedSearchPersonEntityToDO(o, c);
+                return c;
+            }).collect(Collectors.toList());
         }
 
         return ResultList.fromItemsAndSearch(contributors, search);
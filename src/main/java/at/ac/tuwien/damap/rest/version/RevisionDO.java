@@ -0,0 +1,30 @@
+package at.ac.tuwien.damap.rest.version;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+// the three-args constructor is used by the JPQL constructor expression in RevisionRepo
+@Data
+@NoArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class RevisionDO {
+
+    private Long revisionNumber;
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss.SSSXXX")
+    private Date timestamp;
+    private String changedBy;
+    // simple names of the entities changed in the revision, e.g. Dmp, Contributor
+    private List<String> modifiedEntityNames = new ArrayList<>();
+
+    public RevisionDO(Long revisionNumber, Date timestamp, String changedBy) {
+        this.revisionNumber = revisionNumber;
+        this.timestamp = timestamp;
+        this.changedBy = changedBy;
+    }
+}
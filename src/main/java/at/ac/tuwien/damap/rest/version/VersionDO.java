@@ -3,11 +3,16 @@ package at.ac.tuwien.damap.rest.version;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 import java.util.Date;
 
+// the all-args constructor is used by the JPQL constructor expression in DmpVersionRepo, keep the field order
 @Data
+@NoArgsConstructor
+@AllArgsConstructor
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class VersionDO {
 
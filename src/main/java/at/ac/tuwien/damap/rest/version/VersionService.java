@@ -3,6 +3,7 @@ package at.ac.tuwien.damap.rest.version;
 import at.ac.tuwien.damap.domain.DmpVersion;
 import at.ac.tuwien.damap.repo.DmpRepo;
 import at.ac.tuwien.damap.repo.DmpVersionRepo;
+import at.ac.tuwien.damap.repo.RevisionRepo;
 import lombok.extern.jbosslog.JBossLog;
 import org.hibernate.envers.AuditReader;
 import org.hibernate.envers.AuditReaderFactory;
@@ -10,9 +11,11 @@ import org.hibernate.envers.AuditReaderFactory;
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 import javax.transaction.Transactional;
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @ApplicationScoped
 @JBossLog
@@ -24,11 +27,32 @@ public class VersionService {
     @Inject
     DmpRepo dmpRepo;
 
+    @Inject
+    RevisionRepo revisionRepo;
+
     public List<VersionDO> getDmpVersions(long dmpId) {
-        List<VersionDO> versionDOList = new ArrayList<>();
-        dmpVersionRepo.getAllByDmp(dmpId).forEach(version ->
-                versionDOList.add(VersionDOMapper.mapEntityToDO(version, new VersionDO())));
-        return versionDOList;
+        return dmpVersionRepo.getVersionDOsByDmp(dmpId);
+    }
+
+    /**
+     * Lists all revisions of a DMP with the names of the entities changed in them, read from the revision
+     * tables only. The DMP itself is not reconstructed.
+     *
+     * @param dmpId the DMP's id
+     * @return the DMP's revisions, oldest first
+     */
+    public List<RevisionDO> getDmpRevisions(long dmpId) {
+        Map<Long, RevisionDO> revisions = new LinkedHashMap<>();
+        revisionRepo.getRevisionsByDmp(dmpId).forEach(revision -> revisions.put(revision.getRevisionNumber(), revision));
+        for (Object[] modified : revisionRepo.getModifiedEntityNamesByDmp(dmpId)) {
+            RevisionDO revision = revisions.get((Long) modified[0]);
+            if (revision != null) {
+                String entityName = (String) modified[1];
+                revision.getModifiedEntityNames().add(entityName.substring(entityName.lastIndexOf('.') + 1));
+            }
+        }
+        revisions.values().forEach(revision -> Collections.sort(revision.getModifiedEntityNames()));
+        return List.copyOf(revisions.values());
     }
 
     @Transactional
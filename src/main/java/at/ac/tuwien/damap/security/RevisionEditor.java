@@ -0,0 +1,18 @@
+package at.ac.tuwien.damap.security;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import javax.enterprise.context.RequestScoped;
+
+/**
+ * Editor recorded in the revisions written during a request instead of the authenticated user.
+ * Set by background jobs, which change DMPs without a user.
+ */
+@Getter
+@Setter
+@RequestScoped
+public class RevisionEditor {
+
+    private String name;
+}
@@ -8,12 +8,14 @@ import at.ac.tuwien.damap.repo.AccessRepo;
 import at.ac.tuwien.damap.repo.DmpRepo;
 import at.ac.tuwien.damap.rest.access.domain.AccessDO;
 import at.ac.tuwien.damap.security.SecurityService;
+import io.quarkus.arc.Arc;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @ApplicationScoped
 public class AccessValidator {
@@ -27,17 +29,15 @@ public class AccessValidator {
     @Inject
     SecurityService securityService;
 
+    @Inject
+    PermissionCache permissionCache;
+
     public boolean canViewDmp(long dmpId, String personId) {
         if (securityService.isAdmin()) {
             return true;
         }
 
-        List<Access> accessList = accessRepo.getAllDmpByUniversityId(personId);
-
-        Optional<Access> dmpAccess = accessList.stream().filter(access ->
-                access.getDmp().id.equals(dmpId)).findAny();
-
-        return dmpAccess.isPresent();
+        return !getRoles(personId, dmpId).isEmpty();
     }
 
     public boolean canEditDmp(long dmpId, String personId) {
@@ -45,14 +45,7 @@ public class AccessValidator {
             return true;
         }
 
-        List<Access> accessList = accessRepo.getAllDmpByUniversityId(personId);
-
-        Optional<Access> dmpAccess = accessList.stream().filter(access ->
-                access.getDmp().id.equals(dmpId) &&
-                (access.getRole().equals(EFunctionRole.EDITOR) ||
-                 access.getRole().equals(EFunctionRole.OWNER))).findAny();
-
-        return dmpAccess.isPresent();
+        return canEdit(getRoles(personId, dmpId));
     }
 
     public boolean canExportDmp(long dmpId, String personId) {
@@ -64,13 +57,7 @@ public class AccessValidator {
             return true;
         }
 
-        List<Access> accessList = accessRepo.getAllDmpByUniversityId(personId);
-
-        Optional<Access> dmpAccess = accessList.stream().filter(access ->
-                access.getDmp().id.equals(dmpId) &&
-                access.getRole().equals(EFunctionRole.OWNER)).findAny();
-
-        return dmpAccess.isPresent();
+        return getRoles(personId, dmpId).contains(EFunctionRole.OWNER);
     }
 
     public boolean canViewAccess(long dmpId) {
@@ -78,18 +65,7 @@ public class AccessValidator {
             return true;
         }
 
-        Dmp dmp = dmpRepo.findById(dmpId);
-        if (dmp == null) {
-            return false;
-        }
-
-        List<Access> accessList = accessRepo.getAccessByDmp(dmp);
-        Optional<Access> dmpAccess = accessList.stream().filter(access ->
-                access.getUniversityId().equals(securityService.getUserId()) &&
-                (access.getRole().equals(EFunctionRole.EDITOR) ||
-                 access.getRole().equals(EFunctionRole.OWNER))).findAny();
-
-        return dmpAccess.isPresent();
+        return canEdit(getRoles(securityService.getUserId(), dmpId));
     }
 
     public boolean canCreateAccess(AccessDO accessDO) {
@@ -105,12 +81,7 @@ public class AccessValidator {
         // Check user permission to create new access
         boolean hasPermission = securityService.isAdmin();
         if (!hasPermission) {
-            List<Access> accessList = accessRepo.getAccessByDmp(dmp);
-            Optional<Access> dmpAccess = accessList.stream().filter(access ->
-                    access.getUniversityId().equals(securityService.getUserId()) &&
-                    (access.getRole().equals(EFunctionRole.EDITOR) ||
-                     access.getRole().equals(EFunctionRole.OWNER))).findAny();
-            hasPermission = dmpAccess.isPresent();
+            hasPermission = canEdit(getRoles(securityService.getUserId(), dmp.id));
         }
 
         return canGetAccess(accessDO) && hasPermission;
@@ -133,13 +104,7 @@ public class AccessValidator {
         if (securityService.isAdmin()) {
             return true;
         }
-        List<Access> accessList = accessRepo.getAllDmpByUniversityId(securityService.getUserId());
-        Optional<Access> dmpAccess = accessList.stream().filter(a ->
-                a.getDmp().id.equals(access.getDmp().id) &&
-                (a.getRole().equals(EFunctionRole.EDITOR) ||
-                 a.getRole().equals(EFunctionRole.OWNER))).findAny();
-
-        return dmpAccess.isPresent();
+        return canEdit(getRoles(securityService.getUserId(), access.getDmp().id));
     }
 
     // Can the selected user be given access to this dmp
@@ -154,4 +119,16 @@ public class AccessValidator {
                 c.getUniversityId().equals(accessDO.getUniversityId())).findAny();
         return contributor.isPresent();
     }
+
+    private boolean canEdit(Set<EFunctionRole> roles) {
+        return roles.contains(EFunctionRole.EDITOR) || roles.contains(EFunctionRole.OWNER);
+    }
+
+    // Outside of a request (e.g. background jobs) there is nothing to memoise, so query directly
+    private Set<EFunctionRole> getRoles(String personId, long dmpId) {
+        if (Arc.container().requestContext().isActive()) {
+            return permissionCache.getRoles(personId, dmpId);
+        }
+        return PermissionCache.loadRoles(accessRepo, personId, dmpId);
+    }
 }
@@ -0,0 +1,36 @@
+package at.ac.tuwien.damap.validation;
+
+import at.ac.tuwien.damap.enums.EFunctionRole;
+import at.ac.tuwien.damap.repo.AccessRepo;
+
+import javax.enterprise.context.RequestScoped;
+import javax.inject.Inject;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Remembers the roles of a user on a DMP for the duration of a request,
+ * so repeated permission checks only hit the database once.
+ */
+@RequestScoped
+public class PermissionCache {
+
+    @Inject
+    AccessRepo accessRepo;
+
+    private final Map<String, Set<EFunctionRole>> roles = new HashMap<>();
+
+    public Set<EFunctionRole> getRoles(String universityId, long dmpId) {
+        return roles.computeIfAbsent(universityId + "_" + dmpId, key -> loadRoles(accessRepo, universityId, dmpId));
+    }
+
+    static Set<EFunctionRole> loadRoles(AccessRepo accessRepo, String universityId, long dmpId) {
+        Set<EFunctionRole> result = EnumSet.noneOf(EFunctionRole.class);
+        if (universityId != null) {
+            result.addAll(accessRepo.getRolesByUniversityIdAndDmpId(universityId, dmpId));
+        }
+        return result;
+    }
+}
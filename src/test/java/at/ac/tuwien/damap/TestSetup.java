@@ -2,6 +2,10 @@ package at.ac.tuwien.damap;
 
 import static org.mockito.ArgumentMatchers.any;
 
+import java.util.Collection;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
 import javax.inject.Inject;
 
 import org.junit.jupiter.api.BeforeEach;
@@ -43,6 +47,9 @@ public class TestSetup {
                 .thenReturn(
                         ORCIDMapper.mapRecordEntityToPersonDO(testDOFactory.getORCIDTestRecord(),
                                 testDOFactory.getTestContributorDO()));
+        Mockito.when(orcidPersonServiceImpl.readAll(any()))
+                .thenAnswer(invocation -> ((Collection<String>) invocation.getArgument(0)).stream()
+                        .collect(Collectors.toMap(Function.identity(), orcidPersonServiceImpl::read)));
         dmpDO = testDOFactory.getOrCreateTestDmpDO();
     }
 }
@@ -2,6 +2,8 @@ package at.ac.tuwien.damap.conversion;
 
 import io.quarkus.test.junit.QuarkusTest;
 import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFRun;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -36,6 +38,37 @@ class AbstractTemplateExportFunctionsTest {
         }
     }
 
+    @Test
+    void testReplaceInParagraphs() {
+        XWPFDocument document = new XWPFDocument();
+        XWPFRun plain = document.createParagraph().createRun();
+        plain.setText("[a] and [ab], [unknown] [a]");
+        XWPFRun title = document.createParagraph().createRun();
+        title.setFontSize(20);
+        title.setText("[projectname]");
+        XWPFRun green = document.createParagraph().createRun();
+        green.setText("state: [state]");
+        XWPFParagraph listParagraph = document.createParagraph();
+        XWPFRun list = listParagraph.createRun();
+        list.setText("[contributors]");
+
+        Map<String, String> replacements = new HashMap<>();
+        replacements.put("[a]", "A");
+        replacements.put("[ab]", "[a]B");
+        replacements.put("[projectname]", "Title#oversize");
+        replacements.put("[state]", "ok#color_green");
+        replacements.put("[contributors]", "first; second");
+        AbstractTemplateExportFunctions.replaceInParagraphs(document.getParagraphs(), replacements);
+
+        // values are not replaced again
+        Assertions.assertEquals("A and [a]B, [unknown] A", plain.getText(0));
+        Assertions.assertEquals("Title", title.getText(0));
+        Assertions.assertEquals(16, title.getFontSize());
+        Assertions.assertEquals("state: ok", green.getText(0));
+        Assertions.assertEquals("92D050", green.getColor());
+        Assertions.assertEquals("first\n\nsecond", listParagraph.getText());
+    }
+
     private List<String> testTwoVariable() {
         List<String> variables = Arrays.asList("var1", "var2");
         return variables;
@@ -0,0 +1,62 @@
+package at.ac.tuwien.damap.conversion;
+
+import at.ac.tuwien.damap.enums.ETemplateType;
+import io.quarkus.test.junit.QuarkusTest;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.inject.Inject;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@QuarkusTest
+class CompiledTemplateCacheTest {
+
+    @Inject
+    CompiledTemplateCache compiledTemplateCache;
+
+    @Inject
+    TemplateFileBrokerService templateFileBrokerService;
+
+    private final AtomicInteger compilations = new AtomicInteger();
+
+    @BeforeEach
+    void setup() {
+        compiledTemplateCache.invalidateAll();
+        compilations.set(0);
+    }
+
+    @Test
+    void testTemplateIsCompiledOnce() throws Exception {
+        XWPFDocument first = load(ETemplateType.SCIENCE_EUROPE, templateFileBrokerService.loadScienceEuropeTemplate());
+        XWPFDocument second = load(ETemplateType.SCIENCE_EUROPE, templateFileBrokerService.loadScienceEuropeTemplate());
+
+        Assertions.assertEquals(1, compilations.get());
+        Assertions.assertNotSame(first, second);
+        Assertions.assertEquals(first.getParagraphs().size(), second.getParagraphs().size());
+
+        // exports modify their document, copies must not be affected
+        first.removeBodyElement(0);
+        Assertions.assertEquals(first.getParagraphs().size() + 1,
+                load(ETemplateType.SCIENCE_EUROPE, templateFileBrokerService.loadScienceEuropeTemplate()).getParagraphs().size());
+    }
+
+    @Test
+    void testChangedTemplateIsCompiledAgain() throws Exception {
+        load(ETemplateType.SCIENCE_EUROPE, templateFileBrokerService.loadScienceEuropeTemplate());
+        XWPFDocument document = load(ETemplateType.SCIENCE_EUROPE, templateFileBrokerService.loadFWFTemplate());
+
+        Assertions.assertEquals(2, compilations.get());
+        Assertions.assertEquals(new XWPFDocument(templateFileBrokerService.loadFWFTemplate()).getTables().size(),
+                document.getTables().size());
+    }
+
+    private XWPFDocument load(ETemplateType type, InputStream template) throws Exception {
+        return compiledTemplateCache.getDocument(type, template, t -> {
+            compilations.incrementAndGet();
+            return new XWPFDocument(t);
+        });
+    }
+}
@@ -0,0 +1,103 @@
+package at.ac.tuwien.damap.conversion;
+
+import at.ac.tuwien.damap.TestSetup;
+import at.ac.tuwien.damap.enums.ETemplateType;
+import at.ac.tuwien.damap.util.TestDOFactory;
+import io.quarkus.arc.Arc;
+import io.quarkus.arc.ManagedContext;
+import io.quarkus.test.junit.QuarkusTest;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import javax.inject.Inject;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+@QuarkusTest
+class ExportConcurrencyTest extends TestSetup {
+
+    private static final int EXPORTS = 64;
+
+    @Inject
+    ExportTemplateBroker exportTemplateBroker;
+
+    @Inject
+    TestDOFactory testDOFactory;
+
+    @Test
+    void testParallelExportsMatchSequentialExports() throws Exception {
+        List<Long> dmpIds = new ArrayList<>();
+        for (int i = 0; i < EXPORTS; i++) {
+            dmpIds.add(testDOFactory.createDmp("Concurrent Export Dmp " + i, false).getId());
+        }
+        ETemplateType[] types = ETemplateType.values();
+
+        // sequential exports share the request context of the test
+        List<Map<String, byte[]>> expected = new ArrayList<>();
+        for (int i = 0; i < EXPORTS; i++) {
+            expected.add(export(dmpIds.get(i), types[i % types.length]));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(EXPORTS);
+        try {
+            List<Future<Map<String, byte[]>>> results = new ArrayList<>();
+            for (int i = 0; i < EXPORTS; i++) {
+                long dmpId = dmpIds.get(i);
+                ETemplateType type = types[i % types.length];
+                results.add(executor.submit(inRequestContext(() -> export(dmpId, type))));
+            }
+            for (int i = 0; i < EXPORTS; i++) {
+                assertSameContent(expected.get(i), results.get(i).get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Map<String, byte[]> export(long dmpId, ETemplateType type) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (XWPFDocument document = exportTemplateBroker.exportTemplateByType(dmpId, type)) {
+            Assertions.assertNotNull(document);
+            document.write(out);
+        }
+        // compare the parts of the document, the archive itself contains timestamps
+        Map<String, byte[]> parts = new TreeMap<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                parts.put(entry.getName(), zip.readAllBytes());
+            }
+        }
+        return parts;
+    }
+
+    private static <T> Callable<T> inRequestContext(Callable<T> callable) {
+        return () -> {
+            ManagedContext requestContext = Arc.container().requestContext();
+            requestContext.activate();
+            try {
+                return callable.call();
+            } finally {
+                requestContext.terminate();
+            }
+        };
+    }
+
+    private static void assertSameContent(Map<String, byte[]> expected, Map<String, byte[]> actual) {
+        Assertions.assertEquals(expected.keySet(), actual.keySet());
+        expected.forEach((name, content) ->
+                Assertions.assertArrayEquals(content, actual.get(name), "Document part " + name + " differs"));
+    }
+}
@@ -0,0 +1,89 @@
+package at.ac.tuwien.damap.conversion;
+
+import lombok.extern.jbosslog.JBossLog;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.UnaryOperator;
+
+/**
+ * Compares the placeholder replacement of a template export against the previous nested loop implementation.
+ * Only runs on demand: {@code mvn test -Dtest=PlaceholderReplacerBenchmarkTest -Ddamap.benchmark=true}
+ */
+@JBossLog
+@EnabledIfSystemProperty(named = "damap.benchmark", matches = "true")
+class PlaceholderReplacerBenchmarkTest {
+
+    private static final int PLACEHOLDERS = 300;
+    private static final int RUNS = 20_000;
+    private static final int WARMUP_ITERATIONS = 5;
+    private static final int ITERATIONS = 10;
+
+    @Test
+    void benchmarkReplacement() {
+        Map<String, String> replacements = new HashMap<>();
+        for (int i = 0; i < PLACEHOLDERS; i++) {
+            replacements.put("[variable" + i + "]", "value of variable " + i);
+        }
+        Random random = new Random(42);
+        List<String> runs = new ArrayList<>();
+        for (int i = 0; i < RUNS; i++) {
+            // most runs of a template are plain text, some contain one or two placeholders
+            switch (i % 4) {
+                case 0:
+                    runs.add("[variable" + random.nextInt(PLACEHOLDERS) + "]");
+                    break;
+                case 1:
+                    runs.add("Text with [variable" + random.nextInt(PLACEHOLDERS) + "] and [variable" +
+                            random.nextInt(PLACEHOLDERS) + "] in it.");
+                    break;
+                default:
+                    runs.add("Some plain text of a template paragraph without any variables.");
+            }
+        }
+
+        PlaceholderReplacer replacer = new PlaceholderReplacer(replacements);
+        List<String> expected = replaceAll(runs, text -> nestedLoopReplace(text, replacements));
+        Assertions.assertEquals(expected, replaceAll(runs, replacer::replace));
+
+        long nestedLoop = measure(runs, text -> nestedLoopReplace(text, replacements));
+        long singlePass = measure(runs, replacer::replace);
+        log.infov("{0} runs, {1} placeholders: nested loop {2} us/op, single pass {3} us/op",
+                RUNS, PLACEHOLDERS, nestedLoop, singlePass);
+    }
+
+    private long measure(List<String> runs, UnaryOperator<String> replace) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            replaceAll(runs, replace);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            replaceAll(runs, replace);
+        }
+        return (System.nanoTime() - start) / ITERATIONS / 1000;
+    }
+
+    private List<String> replaceAll(List<String> runs, UnaryOperator<String> replace) {
+        List<String> result = new ArrayList<>(runs.size());
+        for (String run : runs) {
+            result.add(replace.apply(run));
+        }
+        return result;
+    }
+
+    // previous implementation of AbstractTemplateExportFunctions.replaceTextInFooter
+    private String nestedLoopReplace(String text, Map<String, String> replacements) {
+        for (Map.Entry<String, String> entry : replacements.entrySet()) {
+            if (text != null && text.contains(entry.getKey())) {
+                text = text.replace(entry.getKey(), entry.getValue());
+            }
+        }
+        return text;
+    }
+}
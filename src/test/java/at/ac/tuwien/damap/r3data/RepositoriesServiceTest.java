@@ -0,0 +1,104 @@
+package at.ac.tuwien.damap.r3data;
+
+import at.ac.tuwien.damap.r3data.dto.RepositoryDetails;
+import at.ac.tuwien.damap.r3data.dto.RepositoryRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.re3data.schema._2_2.Re3Data;
+
+import javax.ws.rs.ProcessingException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+class RepositoriesServiceTest {
+
+    private RepositoriesService repositoriesService;
+    private RepositoryMirror repositoryMirror;
+
+    @BeforeEach
+    void setup() {
+        repositoryMirror = Mockito.mock(RepositoryMirror.class);
+        repositoriesService = new RepositoriesService();
+        repositoriesService.repositoryMirror = repositoryMirror;
+        repositoriesService.repositoriesRecommendation = new String[]{"r3d1", "r3d2", "r3d3"};
+        repositoriesService.recommendationTtl = Duration.ofDays(1);
+        repositoriesService.recommendationTimeout = Duration.ofSeconds(5);
+        repositoriesService.lookupThreads = 4;
+        repositoriesService.init();
+    }
+
+    @AfterEach
+    void shutdown() {
+        repositoriesService.shutdown();
+    }
+
+    @Test
+    void failingRecommendationIsLeftOutAndBackedOffTest() {
+        Mockito.when(repositoryMirror.getById(Mockito.anyString()))
+                .thenAnswer(invocation -> getRe3Data(invocation.getArgument(0)));
+        Mockito.when(repositoryMirror.getById("r3d2")).thenThrow(new ProcessingException("re3data unavailable"));
+
+        Assertions.assertEquals(List.of("r3d1", "r3d3"), getRecommendedIds());
+        Assertions.assertEquals(List.of("r3d1", "r3d3"), getRecommendedIds());
+
+        // resolved entries are not looked up again, the failed one waits for its backoff
+        Mockito.verify(repositoryMirror, Mockito.times(1)).getById("r3d1");
+        Mockito.verify(repositoryMirror, Mockito.times(1)).getById("r3d2");
+    }
+
+    @Test
+    void recommendationsAreResolvedConcurrentlyTest() {
+        CountDownLatch allStarted = new CountDownLatch(3);
+        Mockito.when(repositoryMirror.getById(Mockito.anyString())).thenAnswer(invocation -> {
+            allStarted.countDown();
+            // only returns if all three lookups run at the same time
+            Assertions.assertTrue(allStarted.await(5, TimeUnit.SECONDS));
+            return getRe3Data(invocation.getArgument(0));
+        });
+
+        Assertions.assertEquals(List.of("r3d1", "r3d2", "r3d3"), getRecommendedIds());
+    }
+
+    @Test
+    void staleRecommendationIsServedWhileRefreshingTest() throws InterruptedException {
+        Mockito.when(repositoryMirror.getById(Mockito.anyString()))
+                .thenAnswer(invocation -> getRe3Data(invocation.getArgument(0)));
+        Assertions.assertEquals(3, getRecommendedIds().size());
+
+        repositoriesService.recommendationTtl = Duration.ZERO;
+        CountDownLatch release = new CountDownLatch(1);
+        Mockito.when(repositoryMirror.getById(Mockito.anyString())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return getRe3Data(invocation.getArgument(0));
+        });
+        Thread.sleep(5);
+
+        long start = System.nanoTime();
+        Assertions.assertEquals(List.of("r3d1", "r3d2", "r3d3"), getRecommendedIds());
+        Assertions.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+        release.countDown();
+    }
+
+    private List<String> getRecommendedIds() {
+        return repositoriesService.getRecommended().stream().map(RepositoryDetails::getId).collect(Collectors.toList());
+    }
+
+    private RepositoryRecord getRe3Data(String id) {
+        Re3Data.Repository repository = new Re3Data.Repository();
+        Re3Data.Repository.RepositoryName name = new Re3Data.Repository.RepositoryName();
+        name.setValue("Repository " + id);
+        repository.setRepositoryName(name);
+        Re3Data.Repository.Description description = new Re3Data.Repository.Description();
+        description.setValue("Description " + id);
+        repository.setDescription(description);
+        Re3Data re3Data = new Re3Data();
+        re3Data.getRepository().add(repository);
+        return RepositoryRecord.of(id, re3Data);
+    }
+}
@@ -0,0 +1,118 @@
+package at.ac.tuwien.damap.r3data;
+
+import generated.Repository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import org.re3data.schema._2_2.Re3Data;
+
+import javax.ws.rs.ProcessingException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+class RepositoryMirrorTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void refreshIsServedAfterRestartWithoutRemoteTest() throws Exception {
+        RepositoriesRemoteResource remote = Mockito.mock(RepositoriesRemoteResource.class);
+        Mockito.when(remote.getAll()).thenReturn(List.of(getRepository("r3d1"), getRepository("r3d2")));
+        Mockito.when(remote.getById(Mockito.anyString()))
+                .thenAnswer(invocation -> getRe3Data("https://" + invocation.getArgument(0) + ".example"));
+
+        RepositoryMirror mirror = getMirror(remote);
+        mirror.refresh();
+        Assertions.assertEquals(2, mirror.getAll().size());
+        Assertions.assertTrue(Files.exists(directory.resolve(RepositoryMirror.DETAILS_DIRECTORY).resolve("r3d2.xml")));
+
+        RepositoriesRemoteResource unavailableRemote = Mockito.mock(RepositoriesRemoteResource.class);
+        Mockito.when(unavailableRemote.getAll()).thenThrow(new ProcessingException("re3data unavailable"));
+        Mockito.when(unavailableRemote.getById(Mockito.anyString())).thenThrow(new ProcessingException("re3data unavailable"));
+
+        RepositoryMirror restarted = getMirror(unavailableRemote);
+        restarted.refresh();
+        Assertions.assertEquals(List.of("r3d1", "r3d2"),
+                restarted.getAll().stream().map(Repository::getId).toList());
+        Assertions.assertEquals("https://r3d2.example",
+                restarted.getById("r3d2").getRepositoryURL());
+        Assertions.assertTrue(restarted.meterRegistry.get("damap.re3data.cache.weight").gauge().value() > 0);
+    }
+
+    @Test
+    void missingDetailsAreSyncedOnceTest() throws Exception {
+        RepositoriesRemoteResource remote = Mockito.mock(RepositoriesRemoteResource.class);
+        Mockito.when(remote.getById("r3d3")).thenReturn(getRe3Data("https://r3d3.example"));
+
+        RepositoryMirror mirror = getMirror(remote);
+        mirror.getById("r3d3");
+        mirror.getById("r3d3");
+        getMirror(remote).getById("r3d3");
+
+        Mockito.verify(remote, Mockito.times(1)).getById("r3d3");
+    }
+
+    @Test
+    void refreshIsLimitedToBatchSizeTest() throws Exception {
+        RepositoriesRemoteResource remote = Mockito.mock(RepositoriesRemoteResource.class);
+        Mockito.when(remote.getAll()).thenReturn(List.of(getRepository("r3d1"), getRepository("r3d2"),
+                getRepository("r3d3")));
+        Mockito.when(remote.getById(Mockito.anyString())).thenReturn(getRe3Data("https://example.org"));
+
+        RepositoryMirror mirror = getMirror(remote);
+        mirror.batchSize = 2;
+        mirror.refresh();
+        Mockito.verify(remote, Mockito.times(2)).getById(Mockito.anyString());
+
+        mirror.refresh();
+        Mockito.verify(remote, Mockito.times(3)).getById(Mockito.anyString());
+    }
+
+    @Test
+    void emptyRemoteListKeepsMirrorTest() throws Exception {
+        RepositoriesRemoteResource remote = Mockito.mock(RepositoriesRemoteResource.class);
+        Mockito.when(remote.getAll()).thenReturn(List.of(getRepository("r3d1"), getRepository("r3d2")));
+        Mockito.when(remote.getById(Mockito.anyString())).thenReturn(getRe3Data("https://example.org"));
+        getMirror(remote).refresh();
+
+        Mockito.when(remote.getAll()).thenReturn(List.of());
+        RepositoryMirror restarted = getMirror(remote);
+        restarted.refresh();
+
+        Assertions.assertEquals(2, restarted.getMirroredList().size());
+        Assertions.assertEquals(2, getMirror(remote).getMirroredList().size());
+    }
+
+    private RepositoryMirror getMirror(RepositoriesRemoteResource remote) throws Exception {
+        RepositoryMirror mirror = new RepositoryMirror();
+        mirror.repositoriesRemoteResource = remote;
+        mirror.repositorySearchIndex = Mockito.mock(RepositorySearchIndex.class);
+        mirror.directoryName = directory.toString();
+        mirror.maxAge = Duration.ofDays(7);
+        mirror.batchSize = 200;
+        mirror.cacheMaxWeight = 1024 * 1024;
+        mirror.meterRegistry = new SimpleMeterRegistry();
+        mirror.init();
+        return mirror;
+    }
+
+    private Repository getRepository(String id) {
+        Repository repository = new Repository();
+        repository.setId(id);
+        repository.setName("Repository " + id);
+        return repository;
+    }
+
+    private Re3Data getRe3Data(String url) {
+        Re3Data.Repository repository = new Re3Data.Repository();
+        repository.setRepositoryURL(url);
+        Re3Data re3Data = new Re3Data();
+        re3Data.getRepository().add(repository);
+        return re3Data;
+    }
+}
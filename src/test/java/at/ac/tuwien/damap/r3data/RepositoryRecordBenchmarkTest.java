@@ -0,0 +1,130 @@
+package at.ac.tuwien.damap.r3data;
+
+import at.ac.tuwien.damap.r3data.dto.RepositoryRecord;
+import lombok.extern.jbosslog.JBossLog;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.re3data.schema._2_2.ApiTypes;
+import org.re3data.schema._2_2.Certificates;
+import org.re3data.schema._2_2.Countries;
+import org.re3data.schema._2_2.Languages;
+import org.re3data.schema._2_2.PidSystems;
+import org.re3data.schema._2_2.Re3Data;
+import org.re3data.schema._2_2.Yesno;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * Compares the retained heap of complete re3data object graphs with compact repository records.
+ * Only runs on demand: {@code mvn test -Ddamap.benchmark=true}
+ */
+@JBossLog
+@EnabledIfSystemProperty(named = "damap.benchmark", matches = "true")
+class RepositoryRecordBenchmarkTest {
+
+    private static final int REPOSITORIES = 2000;
+
+    @Test
+    void benchmarkRepositoryCacheFootprint() {
+        long re3DataSize = measure("re3data graph", this::getRe3Data);
+        long recordSize = measure("compact record", i -> RepositoryRecord.of("r3d" + i, getRe3Data(i)));
+
+        long estimated = 0;
+        for (int i = 0; i < REPOSITORIES; i++) {
+            estimated += RepositoryRecord.of("r3d" + i, getRe3Data(i)).estimateSize();
+        }
+        log.infov("compact record weigher estimate: {0} bytes per repository", estimated / REPOSITORIES);
+        Assertions.assertTrue(recordSize < re3DataSize);
+    }
+
+    private long measure(String name, IntFunction<Object> factory) {
+        List<Object> retained = new ArrayList<>(REPOSITORIES);
+        long before = usedHeap();
+        for (int i = 0; i < REPOSITORIES; i++) {
+            retained.add(factory.apply(i));
+        }
+        long perRepository = (usedHeap() - before) / REPOSITORIES;
+        log.infov("{0}: {1} bytes per repository", name, perRepository);
+        Assertions.assertEquals(REPOSITORIES, retained.size());
+        return perRepository;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    // shaped like an average re3data record: several names, institutions, policies, APIs and subjects
+    private Re3Data getRe3Data(int i) {
+        Re3Data.Repository repository = new Re3Data.Repository();
+        repository.setRe3DataOrgIdentifier("r3d" + i);
+        Re3Data.Repository.RepositoryName name = new Re3Data.Repository.RepositoryName();
+        name.setValue("Benchmark Repository " + i);
+        name.setLanguage(Languages.ENG);
+        repository.setRepositoryName(name);
+        for (int j = 0; j < 3; j++) {
+            Re3Data.Repository.AdditionalName additionalName = new Re3Data.Repository.AdditionalName();
+            additionalName.setValue("Additional name " + j + " of repository " + i);
+            additionalName.setLanguage(Languages.DEU);
+            repository.getAdditionalName().add(additionalName);
+        }
+        repository.setRepositoryURL("https://repository" + i + ".example.org");
+        repository.getRepositoryIdentifier().add("FAIRsharing_doi:10.25504/FAIRsharing." + i);
+        Re3Data.Repository.Description description = new Re3Data.Repository.Description();
+        description.setValue("Description of benchmark repository " + i + " ".repeat(800));
+        repository.setDescription(description);
+        for (int j = 0; j < 3; j++) {
+            repository.getRepositoryContact().add("contact" + j + "@repository" + i + ".example.org");
+            repository.getRepositoryLanguage().add(j == 0 ? Languages.ENG : j == 1 ? Languages.DEU : Languages.FRA);
+        }
+        for (int j = 0; j < 6; j++) {
+            Re3Data.Repository.Subject subject = new Re3Data.Repository.Subject();
+            subject.setValue((j + 1) + "0" + j + " Subject " + j);
+            subject.setSubjectScheme("DFG");
+            repository.getSubject().add(subject);
+        }
+        for (int j = 0; j < 10; j++) {
+            repository.getKeyword().add("keyword " + j + " of " + i);
+        }
+        for (int j = 0; j < 3; j++) {
+            Re3Data.Repository.Institution institution = new Re3Data.Repository.Institution();
+            Re3Data.Repository.Institution.InstitutionName institutionName =
+                    new Re3Data.Repository.Institution.InstitutionName();
+            institutionName.setValue("Institution " + j + " of repository " + i);
+            institutionName.setLanguage(Languages.ENG);
+            institution.setInstitutionName(institutionName);
+            institution.setInstitutionCountry(Countries.AUT);
+            institution.setInstitutionURL("https://institution" + j + ".example.org");
+            institution.getInstitutionContact().add("https://institution" + j + ".example.org/contact");
+            repository.getInstitution().add(institution);
+        }
+        for (int j = 0; j < 4; j++) {
+            Re3Data.Repository.Policy policy = new Re3Data.Repository.Policy();
+            policy.setPolicyName("Policy " + j);
+            policy.setPolicyURL("https://repository" + i + ".example.org/policy/" + j);
+            repository.getPolicy().add(policy);
+        }
+        for (int j = 0; j < 3; j++) {
+            Re3Data.Repository.Api api = new Re3Data.Repository.Api();
+            api.setValue("https://repository" + i + ".example.org/api/v" + j);
+            api.setApiType(ApiTypes.FTP);
+            repository.getApi().add(api);
+        }
+        repository.getPidSystem().add(PidSystems.DOI);
+        repository.getCertificate().add(Certificates.DSA);
+        repository.setVersioning(Yesno.YES);
+        repository.setRemarks("Remarks of repository " + i);
+        repository.setEntryDate("2012-09-24");
+        repository.setLastUpdate("2023-01-10");
+
+        Re3Data re3Data = new Re3Data();
+        re3Data.getRepository().add(repository);
+        return re3Data;
+    }
+}
@@ -0,0 +1,96 @@
+package at.ac.tuwien.damap.r3data;
+
+import generated.Repository;
+import org.jboss.resteasy.specimpl.MultivaluedMapImpl;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.re3data.schema._2_2.Countries;
+import org.re3data.schema._2_2.PidSystems;
+import org.re3data.schema._2_2.Re3Data;
+import org.re3data.schema._2_2.Yesno;
+
+import javax.ws.rs.core.MultivaluedMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+class RepositorySearchIndexTest {
+
+    private RepositorySearchIndex.Index index;
+
+    @BeforeEach
+    void setup() {
+        Map<String, Re3Data> details = Map.of(
+                "r3d1", getRe3Data(List.of(PidSystems.DOI), Countries.AUT, "1 Humanities and Social Sciences", Yesno.YES),
+                "r3d2", getRe3Data(List.of(PidSystems.DOI, PidSystems.HDL), Countries.DEU, "2 Life Sciences", Yesno.NO),
+                "r3d3", getRe3Data(List.of(PidSystems.HDL), Countries.AUT, "2 Life Sciences", Yesno.YES));
+        List<Repository> repositories = List.of(getRepository("r3d1"), getRepository("r3d2"),
+                getRepository("r3d3"), getRepository("r3d4"));
+        index = RepositorySearchIndex.build(repositories, details::get);
+    }
+
+    @Test
+    void searchCombinesFacetsTest() {
+        Assertions.assertEquals(List.of("r3d1", "r3d2"), search(params("pidSystems", "DOI")));
+        Assertions.assertEquals(List.of("r3d1", "r3d2", "r3d3"), search(params("pidSystems", "DOI", "hdl")));
+        MultivaluedMap<String, String> params = params("pidSystems", "DOI", "hdl");
+        params.add("countries", "AUT");
+        Assertions.assertEquals(List.of("r3d1", "r3d3"), search(params));
+        Assertions.assertEquals(List.of("r3d2", "r3d3"), search(params("subjects", "Life Sciences")));
+        Assertions.assertEquals(List.of(), search(params("versioning", "unknown")));
+        Assertions.assertEquals(4, search(new MultivaluedMapImpl<>()).size());
+    }
+
+    @Test
+    void facetsExcludeTheirOwnFilterTest() {
+        MultivaluedMap<String, String> params = params("countries", "AUT");
+        Map<String, Map<String, Integer>> facets = index.getFacets(params);
+
+        Assertions.assertEquals(Map.of("AUT", 2, "DEU", 1), facets.get("countries"));
+        Assertions.assertEquals(Map.of("DOI", 1, "hdl", 1), facets.get("pidSystems"));
+        Assertions.assertEquals(Map.of("1 Humanities and Social Sciences", 1, "2 Life Sciences", 1),
+                facets.get("subjects"));
+    }
+
+    @Test
+    void availableOnceDetailsAreIndexedTest() {
+        Assertions.assertFalse(index.isAvailable());
+        Assertions.assertTrue(RepositorySearchIndex.build(List.of(getRepository("r3d1")),
+                id -> getRe3Data(List.of(), Countries.AUT, "1 Humanities and Social Sciences", Yesno.YES)).isAvailable());
+        Assertions.assertFalse(RepositorySearchIndex.build(List.of(), id -> null).isAvailable());
+    }
+
+    private List<String> search(MultivaluedMap<String, String> params) {
+        return index.search(params).stream().map(Repository::getId).collect(Collectors.toList());
+    }
+
+    private MultivaluedMap<String, String> params(String facet, String... values) {
+        MultivaluedMap<String, String> params = new MultivaluedMapImpl<>();
+        params.put(facet, List.of(values));
+        return params;
+    }
+
+    private Repository getRepository(String id) {
+        Repository repository = new Repository();
+        repository.setId(id);
+        repository.setName("Repository " + id);
+        return repository;
+    }
+
+    private Re3Data getRe3Data(List<PidSystems> pidSystems, Countries country, String subject, Yesno versioning) {
+        Re3Data.Repository repository = new Re3Data.Repository();
+        repository.getPidSystem().addAll(pidSystems);
+        Re3Data.Repository.Institution institution = new Re3Data.Repository.Institution();
+        institution.setInstitutionCountry(country);
+        repository.getInstitution().add(institution);
+        Re3Data.Repository.Subject repositorySubject = new Re3Data.Repository.Subject();
+        repositorySubject.setValue(subject);
+        repository.getSubject().add(repositorySubject);
+        repository.setVersioning(versioning);
+
+        Re3Data re3Data = new Re3Data();
+        re3Data.getRepository().add(repository);
+        return re3Data;
+    }
+}
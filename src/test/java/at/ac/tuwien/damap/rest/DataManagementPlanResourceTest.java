@@ -1,7 +1,11 @@
 package at.ac.tuwien.damap.rest;
 
 import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.notNullValue;
 
 import javax.inject.Inject;
 import javax.ws.rs.core.MediaType;
@@ -50,7 +54,51 @@ class DataManagementPlanResourceTest extends TestSetup {
         given()
                 .when().get("/all")
                 .then()
-                .statusCode(200);
+                .statusCode(200)
+                .body("items", notNullValue());
+    }
+
+    @Test
+    @TestSecurity(user = "adminJwt", roles = "Damap Admin")
+    void testGetAllPlansEndpoint_KeysetPagination() {
+        testDOFactory.getOrCreateTestDmpDO();
+        testDOFactory.createDmp("Pagination Dmp", false);
+
+        String nextCursor = given()
+                .queryParam("perPage", 1)
+                .when().get("/all")
+                .then()
+                .statusCode(200)
+                .body("items", hasSize(1))
+                .body("search.pagination.hasNext", is(true))
+                .body("search.pagination.nextCursor", notNullValue())
+                .extract().path("search.pagination.nextCursor");
+        Integer firstId = given()
+                .queryParam("perPage", 1)
+                .when().get("/all")
+                .then()
+                .extract().path("items[0].id");
+
+        given()
+                .queryParam("perPage", 1)
+                .queryParam("cursor", nextCursor)
+                .when().get("/all")
+                .then()
+                .statusCode(200)
+                .body("items", hasSize(1))
+                .body("items[0].id", not(firstId))
+                .body("search.pagination.hasPrevious", is(true));
+    }
+
+    @Test
+    @TestSecurity(user = "adminJwt", roles = "Damap Admin")
+    void testGetAllPlansEndpoint_PerPageIsLimited() {
+        given()
+                .queryParam("perPage", Integer.MAX_VALUE)
+                .when().get("/all")
+                .then()
+                .statusCode(200)
+                .body("items.size()", lessThanOrEqualTo(100));
     }
 
     @Test
@@ -144,6 +192,21 @@ class DataManagementPlanResourceTest extends TestSetup {
                 .body("title", is("EmptyTestDmp"));
     }
 
+    @Test
+    @TestSecurity(user = "userJwt", roles = "user")
+    void testUpdatePlanEndpoint_IfMatchOutdated() {
+        DmpDO dmpDO = testDOFactory.getOrCreateTestDmpDOEmpty();
+        dmpDO.setMetadata("Different String for metadata");
+        given()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("If-Match", "\"" + (dmpDO.getVersion() + 1) + "\"")
+                .body(dmpDO)
+                .when()
+                .put("/" + dmpDO.getId())
+                .then()
+                .statusCode(412);
+    }
+
     @Test
     @TestSecurity(user = "userJwt", roles = "user")
     void testUpdatePlanEndpoint_Unauthorized() {
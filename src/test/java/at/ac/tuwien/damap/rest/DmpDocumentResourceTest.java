@@ -1,5 +1,6 @@
 package at.ac.tuwien.damap.rest;
 
+import at.ac.tuwien.damap.conversion.ExportTemplateBroker;
 import at.ac.tuwien.damap.rest.dmp.domain.DmpDO;
 import at.ac.tuwien.damap.rest.projects.MockProjectServiceImpl;
 import at.ac.tuwien.damap.security.SecurityService;
@@ -7,14 +8,25 @@ import at.ac.tuwien.damap.util.TestDOFactory;
 import io.quarkus.test.common.http.TestHTTPEndpoint;
 import io.quarkus.test.junit.QuarkusTest;
 import io.quarkus.test.junit.mockito.InjectMock;
+import io.quarkus.test.junit.mockito.InjectSpy;
 import io.quarkus.test.security.TestSecurity;
+import io.restassured.http.ContentType;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 
 import javax.inject.Inject;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 import static io.restassured.RestAssured.given;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.mockito.ArgumentMatchers.anyString;
 
 @QuarkusTest
@@ -30,6 +42,9 @@ class DmpDocumentResourceTest {
     @InjectMock
     MockProjectServiceImpl mockProjectService;
 
+    @InjectSpy
+    ExportTemplateBroker exportTemplateBroker;
+
     @BeforeEach
     public void setup() {
         Mockito.when(securityService.getUserId()).thenReturn("012345");
@@ -93,4 +108,178 @@ class DmpDocumentResourceTest {
                 .then()
                 .statusCode(404);
     }
+
+    @Test
+    @TestSecurity(user = "userJwt", roles = "user")
+    void testExportTemplateEndpoint_NotModified() {
+        DmpDO dmpDO = testDOFactory.getOrCreateTestDmpDOEmpty();
+        String eTag = given()
+                .when().get("/" + dmpDO.getId() + "?template=SCIENCE_EUROPE")
+                .then()
+                .statusCode(200)
+                .header("ETag", notNullValue())
+                .extract().header("ETag");
+
+        given()
+                .header("If-None-Match", eTag)
+                .when().get("/" + dmpDO.getId() + "?template=SCIENCE_EUROPE")
+                .then()
+                .statusCode(304);
+
+        given()
+                .header("If-None-Match", eTag)
+                .when().get("/" + dmpDO.getId() + "?template=FWF")
+                .then()
+                .statusCode(200);
+    }
+
+    @Test
+    @TestSecurity(user = "userJwt", roles = "user")
+    void testExportTemplateEndpoint_NotModifiedWithoutLoadingDmp() {
+        DmpDO dmpDO = testDOFactory.getOrCreateTestDmpDOEmpty();
+        String eTag = given()
+                .when().get("/" + dmpDO.getId())
+                .then()
+                .statusCode(200)
+                .header("ETag", notNullValue())
+                .extract().header("ETag");
+
+        Mockito.clearInvocations(exportTemplateBroker);
+        given()
+                .header("If-None-Match", eTag)
+                .when().get("/" + dmpDO.getId())
+                .then()
+                .statusCode(304);
+        // the template is only selected for rendering
+        Mockito.verify(exportTemplateBroker, Mockito.never()).selectTemplate(Mockito.anyLong());
+    }
+
+    @Test
+    @TestSecurity(user = "userJwt", roles = "user")
+    void testExportBatchEndpoint_Valid() throws IOException {
+        DmpDO dmpDO = testDOFactory.getOrCreateTestDmpDOEmpty();
+        byte[] archive = given()
+                .contentType(ContentType.JSON)
+                .body("{\"dmpIds\": [" + dmpDO.getId() + ", 0], \"template\": \"SCIENCE_EUROPE\"}")
+                .when().post("/batch")
+                .then()
+                .statusCode(200)
+                .extract().asByteArray();
+
+        List<String> entries = new ArrayList<>();
+        String manifest = null;
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(archive))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                entries.add(entry.getName());
+                byte[] content = zip.readAllBytes();
+                if (entry.getName().equals("manifest.json")) {
+                    manifest = new String(content);
+                }
+            }
+        }
+        Assertions.assertEquals(2, entries.size());
+        Assertions.assertTrue(entries.get(0).startsWith(dmpDO.getId() + "_"));
+        Assertions.assertNotNull(manifest);
+        Assertions.assertTrue(manifest.contains("\"total\":2"));
+        Assertions.assertTrue(manifest.contains("\"exported\":1"));
+        Assertions.assertTrue(manifest.contains("\"failed\":1"));
+    }
+
+    @Test
+    @TestSecurity(user = "userJwt", roles = "user")
+    void testExportBatchEndpoint_FilteredByFunder() throws IOException {
+        DmpDO dmpDO = testDOFactory.getOrCreateTestDmpDO();
+        String funderId = dmpDO.getProject().getFunding().getFunderId().getIdentifier();
+
+        Assertions.assertTrue(getBatchManifest("{\"funderId\": \"" + funderId + "\"}")
+                .contains("\"dmpId\":" + dmpDO.getId() + ","));
+        Assertions.assertTrue(getBatchManifest("{\"funderId\": \"unknown funder\"}").contains("\"total\":0"));
+    }
+
+    @Test
+    @TestSecurity(user = "userJwt", roles = "user")
+    void testExportBatchEndpoint_ReusesDocumentWithoutLoadingDmp() throws IOException {
+        DmpDO dmpDO = testDOFactory.getOrCreateTestDmpDOEmpty();
+        given()
+                .when().get("/" + dmpDO.getId())
+                .then()
+                .statusCode(200);
+
+        Mockito.clearInvocations(exportTemplateBroker);
+        Assertions.assertTrue(getBatchManifest("{\"dmpIds\": [" + dmpDO.getId() + "]}").contains("\"exported\":1"));
+        // the document of the single export is reused, the template is only selected for rendering
+        Mockito.verify(exportTemplateBroker, Mockito.never()).selectTemplate(Mockito.anyLong());
+        Mockito.verify(exportTemplateBroker, Mockito.never()).exportTemplateByType(Mockito.anyLong(), Mockito.any());
+    }
+
+    private String getBatchManifest(String body) throws IOException {
+        byte[] archive = given()
+                .contentType(ContentType.JSON)
+                .body(body)
+                .when().post("/batch")
+                .then()
+                .statusCode(200)
+                .extract().asByteArray();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(archive))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                if (entry.getName().equals("manifest.json")) {
+                    return new String(zip.readAllBytes());
+                }
+            }
+        }
+        return null;
+    }
+
+    @Test
+    @TestSecurity(user = "userJwt", roles = "user")
+    void testCreateExportJobEndpoint_Unauthorized() {
+        given()
+                .when().post("/0/jobs")
+                .then()
+                .statusCode(403);
+    }
+
+    @Test
+    @TestSecurity(user = "userJwt", roles = "user")
+    void testExportJobEndpoints_Valid() throws InterruptedException {
+        DmpDO dmpDO = testDOFactory.getOrCreateTestDmpDOEmpty();
+        String jobId = given()
+                .when().post("/" + dmpDO.getId() + "/jobs?template=SCIENCE_EUROPE")
+                .then()
+                .statusCode(202)
+                .contentType(ContentType.JSON)
+                .header("Location", notNullValue())
+                .body("dmpId", equalTo(dmpDO.getId().intValue()))
+                .extract().path("id");
+
+        String status = null;
+        for (int i = 0; i < 100 && !"DONE".equals(status) && !"FAILED".equals(status); i++) {
+            Thread.sleep(100);
+            status = given()
+                    .when().get("/jobs/" + jobId)
+                    .then()
+                    .statusCode(200)
+                    .extract().path("status");
+        }
+        Assertions.assertEquals("DONE", status);
+
+        byte[] document = given()
+                .when().get("/jobs/" + jobId + "/file")
+                .then()
+                .statusCode(200)
+                .header("Content-Disposition", notNullValue())
+                .extract().asByteArray();
+        Assertions.assertTrue(document.length > 0);
+    }
+
+    @Test
+    @TestSecurity(user = "userJwt", roles = "user")
+    void testExportJobEndpoint_NotFound() {
+        given()
+                .when().get("/jobs/unknown")
+                .then()
+                .statusCode(404);
+    }
 }
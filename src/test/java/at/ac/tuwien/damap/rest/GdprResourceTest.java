@@ -2,19 +2,30 @@ package at.ac.tuwien.damap.rest;
 
 import at.ac.tuwien.damap.security.SecurityService;
 import at.ac.tuwien.damap.util.TestDOFactory;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.quarkus.test.common.http.TestHTTPEndpoint;
 import io.quarkus.test.junit.QuarkusTest;
 import io.quarkus.test.junit.mockito.InjectMock;
 import io.quarkus.test.security.TestSecurity;
+import io.restassured.http.ContentType;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 
 import javax.inject.Inject;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 import static io.restassured.RestAssured.given;
 import static org.hamcrest.Matchers.is;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @QuarkusTest
 @TestHTTPEndpoint(GdprResource.class)
@@ -57,8 +68,8 @@ class GdprResourceTest {
         Mockito.when(securityService.getUserId()).thenReturn("-1");
 
         String expectedResponse = "[" +
-                                  "{\"entity\":\"Consent\",\"entries\":[]}," +
                                   "{\"entity\":\"Access\",\"entries\":[]}," +
+                                  "{\"entity\":\"Consent\",\"entries\":[]}," +
                                   "{\"entity\":\"Contributor\",\"entries\":[]}" +
                                   "]";
 
@@ -70,4 +81,62 @@ class GdprResourceTest {
 
         assertEquals(expectedResponse, reponse);
     }
+
+    @Test
+    @TestSecurity(user = "userJwt", roles = "user")
+    void testExportGdprData_shouldReturnArchiveWithManifest() throws IOException {
+        byte[] archive = given()
+                .when().get("/export")
+                .then()
+                .statusCode(200)
+                .extract().asByteArray();
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        Map<String, JsonNode> files = new LinkedHashMap<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(archive))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                files.put(entry.getName(), objectMapper.readTree(zip.readAllBytes()));
+            }
+        }
+
+        assertEquals(List.of("Access.json", "Consent.json", "Contributor.json", "manifest.json"),
+                List.copyOf(files.keySet()));
+        JsonNode access = files.get("Access.json");
+        assertTrue(access.size() >= 1);
+        assertEquals("012345", access.get(0).get("userId").asText());
+        for (JsonNode entity : files.get("manifest.json").get("entities")) {
+            assertEquals(files.get(entity.get("filename").asText()).size(), entity.get("rows").asLong());
+        }
+    }
+
+    @Test
+    @TestSecurity(user = "adminJwt", roles = "Damap Admin")
+    void testCreateAnonymisationJob_shouldReturnJob() {
+        String jobId = given()
+                .contentType(ContentType.JSON)
+                .body("{\"universityIds\": [\"-1\"]}")
+                .when().post("/anonymisation")
+                .then()
+                .statusCode(202)
+                .body("total", is(1))
+                .extract().path("id");
+
+        given()
+                .when().get("/anonymisation/" + jobId)
+                .then()
+                .statusCode(200)
+                .body("id", is(jobId));
+    }
+
+    @Test
+    @TestSecurity(user = "userJwt", roles = "user")
+    void testCreateAnonymisationJob_shouldRequireAdmin() {
+        given()
+                .contentType(ContentType.JSON)
+                .body("{\"universityIds\": [\"012345\"]}")
+                .when().post("/anonymisation")
+                .then()
+                .statusCode(403);
+    }
 }
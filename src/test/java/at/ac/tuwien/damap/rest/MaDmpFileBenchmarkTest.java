@@ -0,0 +1,95 @@
+package at.ac.tuwien.damap.rest;
+
+import at.ac.tuwien.damap.rest.madmp.dto.Dataset;
+import at.ac.tuwien.damap.rest.madmp.dto.Distribution;
+import at.ac.tuwien.damap.rest.madmp.dto.Dmp;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.jbosslog.JBossLog;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Compares the heap allocated per maDMP file request by the previous string based serialisation
+ * and the streaming writer. Only runs on demand:
+ * {@code mvn test -Dtest=MaDmpFileBenchmarkTest -Ddamap.benchmark=true}
+ */
+@JBossLog
+@EnabledIfSystemProperty(named = "damap.benchmark", matches = "true")
+class MaDmpFileBenchmarkTest {
+
+    private static final int DATASETS = 2000;
+    private static final int ITERATIONS = 20;
+
+    private final com.sun.management.ThreadMXBean threadMXBean =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Test
+    void benchmarkFileSerialisation() throws IOException {
+        Dmp maDmp = createMaDmp();
+
+        long stringBytes = measure(() -> {
+            // previous implementation: new mapper per request, pretty printed string, then written as response
+            String json = new ObjectMapper().writerWithDefaultPrettyPrinter().writeValueAsString(maDmp);
+            OutputStream.nullOutputStream().write(json.getBytes(StandardCharsets.UTF_8));
+        });
+        long prettyBytes = measure(() -> MaDmpResource.PRETTY_WRITER.writeValue(OutputStream.nullOutputStream(), maDmp));
+        long compactBytes = measure(() -> MaDmpResource.COMPACT_WRITER.writeValue(OutputStream.nullOutputStream(), maDmp));
+
+        log.infov("{0} datasets, allocated per request: string {1} bytes, streamed pretty {2} bytes, streamed compact {3} bytes",
+                DATASETS, stringBytes, prettyBytes, compactBytes);
+        Assertions.assertTrue(prettyBytes < stringBytes);
+    }
+
+    private long measure(Serialisation serialisation) throws IOException {
+        // warm up, so class loading and caches of the mapper do not count
+        for (int i = 0; i < ITERATIONS; i++) {
+            serialisation.run();
+        }
+        long threadId = Thread.currentThread().getId();
+        long before = threadMXBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < ITERATIONS; i++) {
+            serialisation.run();
+        }
+        return (threadMXBean.getThreadAllocatedBytes(threadId) - before) / ITERATIONS;
+    }
+
+    private Dmp createMaDmp() {
+        List<Dataset> datasets = new ArrayList<>();
+        for (int i = 0; i < DATASETS; i++) {
+            Distribution distribution = new Distribution();
+            distribution.setTitle("Distribution " + i);
+            distribution.setDescription("Distribution of the benchmark dataset " + i);
+            distribution.setFormat(List.of("text/csv", "application/json"));
+            distribution.setByteSize(i * 1024);
+
+            Dataset dataset = new Dataset();
+            dataset.setTitle("Benchmark dataset " + i);
+            dataset.setDescription("A dataset generated for the maDMP serialisation benchmark, number " + i);
+            dataset.setKeyword(List.of("benchmark", "dataset", "keyword " + i));
+            dataset.setType("Dataset");
+            dataset.setDistribution(List.of(distribution));
+            datasets.add(dataset);
+        }
+
+        Dmp maDmp = new Dmp();
+        maDmp.setTitle("Benchmark maDMP");
+        maDmp.setDescription("maDMP with " + DATASETS + " datasets");
+        maDmp.setCreated(new Date());
+        maDmp.setDataset(datasets);
+        return maDmp;
+    }
+
+    @FunctionalInterface
+    private interface Serialisation {
+        void run() throws IOException;
+    }
+}
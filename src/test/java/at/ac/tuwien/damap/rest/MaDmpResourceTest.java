@@ -8,6 +8,7 @@ import io.quarkus.test.common.http.TestHTTPEndpoint;
 import io.quarkus.test.junit.QuarkusTest;
 import io.quarkus.test.junit.mockito.InjectMock;
 import io.quarkus.test.security.TestSecurity;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
@@ -15,6 +16,9 @@ import org.mockito.Mockito;
 import javax.inject.Inject;
 
 import static io.restassured.RestAssured.given;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
 import static org.mockito.ArgumentMatchers.anyString;
 
 @QuarkusTest
@@ -90,4 +94,60 @@ class MaDmpResourceTest {
                 .then()
                 .statusCode(200);
     }
+
+    @Test
+    @TestSecurity(user = "userJwt", roles = "user")
+    void testGetFileByIdEndpoint_Compact() {
+        DmpDO dmpDO = testDOFactory.getOrCreateTestDmpDOEmpty();
+        given()
+                .when().get("/file/" + dmpDO.getId())
+                .then()
+                .statusCode(200)
+                .body(containsString("\n"));
+        given()
+                .when().get("/file/" + dmpDO.getId() + "?pretty=false")
+                .then()
+                .statusCode(200)
+                .body(not(containsString("\n")))
+                .body("title", equalTo(dmpDO.getTitle()));
+    }
+
+    @Test
+    @TestSecurity(user = "userJwt", roles = "user")
+    void testGetFileByIdEndpoint_Gzip() {
+        DmpDO dmpDO = testDOFactory.getOrCreateTestDmpDOEmpty();
+        given()
+                .header("Accept-Encoding", "gzip")
+                .when().get("/file/" + dmpDO.getId())
+                .then()
+                .statusCode(200)
+                .header("Content-Encoding", "gzip");
+    }
+
+    @Test
+    @TestSecurity(user = "userJwt", roles = "user")
+    void testExportAllEndpoint_Unauthorized() {
+        given()
+                .when().get("/export")
+                .then()
+                .statusCode(403);
+    }
+
+    @Test
+    @TestSecurity(user = "userJwt", roles = "Damap Admin")
+    void testExportAllEndpoint_Valid() {
+        DmpDO dmpDO = testDOFactory.getOrCreateTestDmpDOEmpty();
+        String export = given()
+                .when().get("/export")
+                .then()
+                .statusCode(200)
+                .extract().asString();
+
+        String[] lines = export.split("\n");
+        Assertions.assertTrue(lines.length > 0);
+        for (String line : lines) {
+            Assertions.assertTrue(line.startsWith("{") && line.endsWith("}"));
+        }
+        Assertions.assertTrue(export.contains("\"title\":\"" + dmpDO.getTitle() + "\""));
+    }
 }
@@ -0,0 +1,155 @@
+package at.ac.tuwien.damap.rest.dmp;
+
+import static org.mockito.ArgumentMatchers.any;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import javax.inject.Inject;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import at.ac.tuwien.damap.TestSetup;
+import at.ac.tuwien.damap.domain.DmpEnrichmentTask;
+import at.ac.tuwien.damap.enums.EContributorRole;
+import at.ac.tuwien.damap.enums.EEnrichmentStatus;
+import at.ac.tuwien.damap.enums.EIdentifierType;
+import at.ac.tuwien.damap.repo.DmpEnrichmentTaskRepo;
+import at.ac.tuwien.damap.repo.RevisionRepo;
+import at.ac.tuwien.damap.rest.dmp.domain.ContributorDO;
+import at.ac.tuwien.damap.rest.dmp.domain.DmpDO;
+import at.ac.tuwien.damap.rest.dmp.domain.IdentifierDO;
+import at.ac.tuwien.damap.rest.dmp.service.DmpEnrichmentService;
+import at.ac.tuwien.damap.rest.dmp.service.DmpService;
+import at.ac.tuwien.damap.rest.projects.MockProjectServiceImpl;
+import at.ac.tuwien.damap.rest.version.RevisionDO;
+import at.ac.tuwien.damap.util.TestDOFactory;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.mockito.InjectMock;
+
+@QuarkusTest
+class DmpEnrichmentServiceTest extends TestSetup {
+
+    @Inject
+    DmpService dmpService;
+
+    @Inject
+    DmpEnrichmentService dmpEnrichmentService;
+
+    @Inject
+    DmpEnrichmentTaskRepo dmpEnrichmentTaskRepo;
+
+    @Inject
+    TestDOFactory testDOFactory;
+
+    @Inject
+    RevisionRepo revisionRepo;
+
+    @InjectMock
+    MockProjectServiceImpl mockProjectService;
+
+    @Test
+    void failedEnrichmentIsRetriedLaterTest() {
+        Mockito.doReturn(Map.of()).when(orcidPersonServiceImpl).readAll(any());
+
+        DmpDO dmpDO = dmpService.create(getDmpWithORCIDContributor("failedEnrichmentIsRetriedLaterTest"), "");
+        // the save returns before the contributor is enriched
+        Assertions.assertNotEquals(EEnrichmentStatus.DONE, dmpDO.getEnrichmentStatus());
+
+        dmpEnrichmentService.processDue();
+        dmpEnrichmentTaskRepo.getEntityManager().clear();
+
+        List<DmpEnrichmentTask> tasks = getTasks(dmpDO.getId());
+        Assertions.assertEquals(1, tasks.size());
+        Assertions.assertEquals(EEnrichmentStatus.PENDING, tasks.get(0).getStatus());
+        Assertions.assertEquals(1, tasks.get(0).getAttempts());
+        Assertions.assertTrue(tasks.get(0).getNextAttempt().after(new Date()));
+        Assertions.assertNotNull(tasks.get(0).getLastError());
+        Assertions.assertEquals(EEnrichmentStatus.PENDING, dmpService.getDmpById(dmpDO.getId()).getEnrichmentStatus());
+    }
+
+    @Test
+    void enrichmentCompletesAfterSaveTest() {
+        DmpDO dmpDO = dmpService.create(getDmpWithORCIDContributor("enrichmentCompletesAfterSaveTest"), "");
+
+        dmpEnrichmentService.processDue();
+        dmpEnrichmentTaskRepo.getEntityManager().clear();
+
+        DmpDO enriched = dmpService.getDmpById(dmpDO.getId());
+        Assertions.assertEquals(EEnrichmentStatus.DONE, enriched.getEnrichmentStatus());
+        Assertions.assertTrue(getTasks(dmpDO.getId()).isEmpty());
+        Assertions.assertEquals(testDOFactory.getORCIDTestRecord().getPerson().getName().getFamilyName().getValue(),
+                enriched.getContributors().get(0).getLastName());
+    }
+
+    @Test
+    void saveOfOutdatedVersionIsRejectedTest() {
+        ContributorDO projectLeader = new ContributorDO();
+        projectLeader.setUniversityId("staleSaveProjectLeader");
+        projectLeader.setFirstName("Project");
+        projectLeader.setLastName("Leader");
+        Mockito.when(mockProjectService.getProjectLeader(any())).thenReturn(projectLeader);
+        DmpDO newDmpDO = getDmpWithORCIDContributor("saveOfOutdatedVersionIsRejectedTest");
+        newDmpDO.setProject(testDOFactory.getTestProjectDO());
+
+        DmpDO stale = dmpService.create(newDmpDO, "");
+        dmpEnrichmentService.processDue();
+        dmpEnrichmentTaskRepo.getEntityManager().clear();
+
+        stale.setDescription("Saved without reloading after the enrichment");
+        WebApplicationException e = Assertions.assertThrows(WebApplicationException.class,
+                () -> dmpService.update(stale, stale.getVersion()));
+        Assertions.assertEquals(Response.Status.PRECONDITION_FAILED.getStatusCode(), e.getResponse().getStatus());
+
+        DmpDO enriched = dmpService.getDmpById(stale.getId());
+        Assertions.assertNull(enriched.getDescription());
+        Assertions.assertTrue(enriched.getContributors().stream().anyMatch(contributor ->
+                EContributorRole.PROJECT_LEADER.equals(contributor.getRole())
+                        && "staleSaveProjectLeader".equals(contributor.getUniversityId())));
+        Assertions.assertTrue(enriched.getContributors().stream().anyMatch(contributor ->
+                testDOFactory.getORCIDTestRecord().getPerson().getName().getFamilyName().getValue()
+                        .equals(contributor.getLastName())));
+
+        List<RevisionDO> revisions = revisionRepo.getRevisionsByDmp(stale.getId());
+        Assertions.assertEquals("DAMAP enrichment", revisions.get(revisions.size() - 1).getChangedBy());
+
+        // saving the reloaded DMP at its current version keeps the enrichment
+        enriched.setDescription("Saved after reloading");
+        DmpDO saved = dmpService.update(enriched, enriched.getVersion());
+        Assertions.assertEquals("Saved after reloading", saved.getDescription());
+        Assertions.assertEquals(enriched.getContributors().size(), saved.getContributors().size());
+    }
+
+    @Test
+    void saveWithoutExpectedVersionIsNotCheckedTest() {
+        DmpDO stale = dmpService.create(getDmpWithORCIDContributor("saveWithoutExpectedVersionIsNotCheckedTest"), "");
+        dmpEnrichmentService.processDue();
+        dmpEnrichmentTaskRepo.getEntityManager().clear();
+
+        stale.setDescription("Saved without reloading after the enrichment");
+        DmpDO saved = dmpService.update(stale);
+        Assertions.assertEquals("Saved without reloading after the enrichment", saved.getDescription());
+    }
+
+    private List<DmpEnrichmentTask> getTasks(long dmpId) {
+        return dmpEnrichmentTaskRepo.list("dmpId", dmpId);
+    }
+
+    private DmpDO getDmpWithORCIDContributor(String title) {
+        IdentifierDO orcidIdentifier = new IdentifierDO();
+        orcidIdentifier.setType(EIdentifierType.ORCID);
+        orcidIdentifier.setIdentifier("0000-0000-0000-0000");
+        ContributorDO contributorDO = new ContributorDO();
+        contributorDO.setPersonId(orcidIdentifier);
+
+        DmpDO dmpDO = new DmpDO();
+        dmpDO.setTitle(title);
+        dmpDO.setContributors(List.of(contributorDO));
+        return dmpDO;
+    }
+}
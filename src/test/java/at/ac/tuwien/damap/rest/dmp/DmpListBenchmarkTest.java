@@ -0,0 +1,118 @@
+package at.ac.tuwien.damap.rest.dmp;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Supplier;
+
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import at.ac.tuwien.damap.TestSetup;
+import at.ac.tuwien.damap.domain.Access;
+import at.ac.tuwien.damap.domain.Contributor;
+import at.ac.tuwien.damap.domain.Dmp;
+import at.ac.tuwien.damap.domain.Project;
+import at.ac.tuwien.damap.enums.EFunctionRole;
+import at.ac.tuwien.damap.repo.AccessRepo;
+import at.ac.tuwien.damap.rest.dmp.domain.DmpListItemDO;
+import at.ac.tuwien.damap.rest.dmp.mapper.DmpListItemDOMapper;
+import at.ac.tuwien.damap.util.MockDmpService;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import lombok.extern.jbosslog.JBossLog;
+
+/**
+ * Compares the user dashboard list query against the previous entity based implementation.
+ * Seeds 5000 plans for one user, so it only runs on demand: {@code mvn test -Ddamap.benchmark=true}
+ */
+@QuarkusTest
+@JBossLog
+@EnabledIfSystemProperty(named = "damap.benchmark", matches = "true")
+class DmpListBenchmarkTest extends TestSetup {
+
+    private static final int PLANS_PER_USER = 5000;
+    private static final String BENCHMARK_USER = "benchmark-user";
+
+    @Inject
+    MockDmpService dmpService;
+
+    @Inject
+    AccessRepo accessRepo;
+
+    @Inject
+    EntityManager entityManager;
+
+    @Test
+    void benchmarkDmpListByPersonId() {
+        QuarkusTransaction.run(this::seed);
+
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+
+        // previous implementation: load access rows, initialise every DMP lazily
+        List<DmpListItemDO> entityItems = measure(statistics, "entity based", () -> {
+            List<DmpListItemDO> items = new ArrayList<>();
+            accessRepo.getAllDmpByUniversityId(BENCHMARK_USER).forEach(access -> items
+                    .add(DmpListItemDOMapper.mapEntityToDO(access, access.getDmp(), new DmpListItemDO())));
+            return items;
+        });
+        List<DmpListItemDO> projectionItems = measure(statistics, "projection",
+                () -> dmpService.getDmpListByPersonId(BENCHMARK_USER));
+
+        statistics.setStatisticsEnabled(false);
+        Assertions.assertEquals(PLANS_PER_USER, entityItems.size());
+        Assertions.assertEquals(PLANS_PER_USER, projectionItems.size());
+    }
+
+    private List<DmpListItemDO> measure(Statistics statistics, String name, Supplier<List<DmpListItemDO>> query) {
+        return QuarkusTransaction.call(() -> {
+            entityManager.clear();
+            statistics.clear();
+            long start = System.nanoTime();
+            List<DmpListItemDO> items = query.get();
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            log.infov("{0}: {1} items, {2} statements, {3} ms", name, items.size(),
+                    statistics.getPrepareStatementCount(), millis);
+            return items;
+        });
+    }
+
+    private void seed() {
+        for (int i = 0; i < PLANS_PER_USER; i++) {
+            Project project = new Project();
+            project.setTitle("Benchmark Project " + i);
+
+            Dmp dmp = new Dmp();
+            dmp.setTitle("Benchmark Dmp " + i);
+            dmp.setCreated(new Date());
+            dmp.setProject(project);
+
+            Contributor contact = new Contributor();
+            contact.setFirstName("Bench");
+            contact.setLastName("Mark " + i);
+            contact.setContact(true);
+            contact.setDmp(dmp);
+            dmp.getContributorList().add(contact);
+            dmp.persist();
+
+            Access access = new Access();
+            access.setUniversityId(BENCHMARK_USER);
+            access.setRole(EFunctionRole.OWNER);
+            access.setDmp(dmp);
+            access.setStart(new Date());
+            access.persist();
+
+            if (i % 500 == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+    }
+}
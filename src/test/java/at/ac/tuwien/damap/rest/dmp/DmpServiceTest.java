@@ -12,12 +12,15 @@ import org.junit.jupiter.api.Test;
 
 import at.ac.tuwien.damap.TestSetup;
 import at.ac.tuwien.damap.enums.EContributorRole;
+import at.ac.tuwien.damap.enums.EEnrichmentStatus;
 import at.ac.tuwien.damap.enums.EIdentifierType;
+import at.ac.tuwien.damap.repo.DmpRepo;
 import at.ac.tuwien.damap.rest.dmp.domain.ContributorDO;
 import at.ac.tuwien.damap.rest.dmp.domain.DmpDO;
 import at.ac.tuwien.damap.rest.dmp.domain.IdentifierDO;
 import at.ac.tuwien.damap.rest.dmp.domain.ProjectDO;
 import at.ac.tuwien.damap.rest.dmp.domain.RepositoryDO;
+import at.ac.tuwien.damap.rest.dmp.service.DmpEnrichmentService;
 import at.ac.tuwien.damap.rest.persons.orcid.ORCIDPersonServiceImpl;
 import at.ac.tuwien.damap.rest.persons.orcid.models.ORCIDRecord;
 import at.ac.tuwien.damap.util.MockDmpService;
@@ -38,6 +41,12 @@ class DmpServiceTest extends TestSetup {
     @InjectMock
     ORCIDPersonServiceImpl orcidPersonServiceImpl;
 
+    @Inject
+    DmpEnrichmentService dmpEnrichmentService;
+
+    @Inject
+    DmpRepo dmpRepo;
+
     @Test
     void updateProjectLeadTest() {
         ProjectDO projectDO = new ProjectDO() {
@@ -53,7 +62,7 @@ class DmpServiceTest extends TestSetup {
             }
         };
 
-        dmpDO = dmpService.create(dmpDO, "editedBy");
+        dmpDO = enrich(dmpService.create(dmpDO, "editedBy"));
 
         // On a new project, the project lead from the CRIS system should be
         // added as contributor, contact and get the PROJECT_LEADER role.
@@ -69,7 +78,7 @@ class DmpServiceTest extends TestSetup {
         long projectLeadID = projectLead.get().getId();
         // Remove project from dmp and update. Nothing should happen.
         dmpDO.setProject(null);
-        dmpDO = dmpService.update(dmpDO);
+        dmpDO = enrich(dmpService.update(dmpDO));
 
         // Project leader contributor has changed the role and is no longer
         // contact.
@@ -87,7 +96,7 @@ class DmpServiceTest extends TestSetup {
 
         // Set project again and update.
         dmpDO.setProject(projectDO);
-        dmpDO = dmpService.update(dmpDO);
+        dmpDO = enrich(dmpService.update(dmpDO));
 
         // Now there should
         // - two contributors
@@ -111,7 +120,7 @@ class DmpServiceTest extends TestSetup {
 
         // Remove project from dmp and update. Nothing should happen.
         dmpDO.setProject(null);
-        dmpDO = dmpService.update(dmpDO);
+        dmpDO = enrich(dmpService.update(dmpDO));
 
         // Remove other contributor and set role of project lead to null.
         projectLead.get().setRole(null);
@@ -119,7 +128,7 @@ class DmpServiceTest extends TestSetup {
 
         // Set project again and update.
         dmpDO.setProject(projectDO);
-        dmpDO = dmpService.update(dmpDO);
+        dmpDO = enrich(dmpService.update(dmpDO));
 
         // Now there should be
         // - one contributor
@@ -151,7 +160,7 @@ class DmpServiceTest extends TestSetup {
 
         dmpDO.setContributors(List.of(orcidContributorDO));
 
-        dmpDO = dmpService.create(dmpDO, "");
+        dmpDO = enrich(dmpService.create(dmpDO, ""));
         var contributorDOs = dmpDO.getContributors();
         Assertions.assertFalse(contributorDOs.isEmpty());
         Assertions.assertEquals(testRecord.getPerson().getName().getGivenNames().getValue(),
@@ -186,4 +195,15 @@ class DmpServiceTest extends TestSetup {
         DmpDO updatedDMP = dmpService.update(testDMP);
         Assertions.assertEquals(2, updatedDMP.getRepositories().size());
     }
+
+    // runs the enrichment queued by saving the DMP and reads the enriched DMP
+    private DmpDO enrich(DmpDO dmpDO) {
+        Assertions.assertNotEquals(EEnrichmentStatus.FAILED, dmpDO.getEnrichmentStatus());
+        dmpEnrichmentService.processDue();
+        // the enrichment is applied in its own transaction, drop entities this test read before
+        dmpRepo.getEntityManager().clear();
+        DmpDO enriched = dmpService.getDmpById(dmpDO.getId());
+        Assertions.assertEquals(EEnrichmentStatus.DONE, enriched.getEnrichmentStatus());
+        return enriched;
+    }
 }
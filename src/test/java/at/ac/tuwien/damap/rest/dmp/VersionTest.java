@@ -4,8 +4,11 @@ import at.ac.tuwien.damap.domain.Dmp;
 import at.ac.tuwien.damap.domain.DmpVersion;
 import at.ac.tuwien.damap.repo.DmpRepo;
 import at.ac.tuwien.damap.repo.DmpVersionRepo;
+import at.ac.tuwien.damap.repo.RevisionRepo;
 import at.ac.tuwien.damap.rest.dmp.domain.DmpDO;
+import at.ac.tuwien.damap.rest.dmp.service.DmpRevisionCache;
 import at.ac.tuwien.damap.rest.dmp.service.DmpService;
+import at.ac.tuwien.damap.rest.version.RevisionDO;
 import at.ac.tuwien.damap.rest.version.VersionDO;
 import at.ac.tuwien.damap.rest.version.VersionDOMapper;
 import at.ac.tuwien.damap.rest.version.VersionService;
@@ -18,6 +21,7 @@ import javax.inject.Inject;
 import javax.transaction.Transactional;
 
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -40,6 +44,12 @@ class VersionTest {
     @Inject
     DmpService dmpService;
 
+    @Inject
+    DmpRevisionCache dmpRevisionCache;
+
+    @Inject
+    RevisionRepo revisionRepo;
+
     @Test
     void createVersionTest(){
         VersionDO versionDO = testDOFactory.getOrCreateTestVersionDO();
@@ -90,6 +100,68 @@ class VersionTest {
         assertNotEquals(dmpDOCurrent.getTitle(), dmpDOPreviousVersion.getTitle());
     }
 
+    @Test
+    void getRevisionListTest(){
+        VersionDO versionDO = testDOFactory.getOrCreateTestVersionDO();
+        DmpDO dmpDO = dmpService.getDmpById(versionDO.getDmpId());
+        dmpDO.setDescription("Updated for the revision list " + System.nanoTime());
+        dmpService.update(dmpDO);
+
+        List<RevisionDO> revisionDOList = versionService.getDmpRevisions(versionDO.getDmpId());
+        assertTrue(revisionDOList.size() > 1);
+        RevisionDO latest = revisionDOList.get(revisionDOList.size() - 1);
+        assertTrue(latest.getRevisionNumber() > versionDO.getRevisionNumber());
+        assertNotNull(latest.getTimestamp());
+        assertTrue(latest.getModifiedEntityNames().contains("Dmp"));
+    }
+
+    @Test
+    void getCachedRevisionTest(){
+        VersionDO versionDO = testDOFactory.getOrCreateTestVersionDO();
+
+        DmpDO first = dmpService.getDmpByIdAndRevision(versionDO.getDmpId(), versionDO.getRevisionNumber());
+        DmpDO second = dmpService.getDmpByIdAndRevision(versionDO.getDmpId(), versionDO.getRevisionNumber());
+
+        assertNotSame(first, second);
+        assertEquals(first.getTitle(), second.getTitle());
+        assertEquals(first.getContributors().size(), second.getContributors().size());
+    }
+
+    @Test
+    void onlyRevisionsOfTheDmpAreFinalTest(){
+        VersionDO versionDO = testDOFactory.getOrCreateTestVersionDO();
+        List<RevisionDO> revisions = revisionRepo.getRevisionsByDmp(versionDO.getDmpId());
+        long latest = revisions.get(revisions.size() - 1).getRevisionNumber();
+
+        assertTrue(revisionRepo.isDmpRevision(versionDO.getDmpId(), latest));
+        // not written yet, or written by a transaction that did not change the DMP
+        assertFalse(revisionRepo.isDmpRevision(versionDO.getDmpId(), latest + 1000));
+        assertFalse(revisionRepo.isDmpRevision(-1, latest));
+    }
+
+    @Test
+    void revisionLoadedBeforeInvalidationIsNotCachedTest(){
+        DmpDO dmpDO = new DmpDO();
+        AtomicInteger loads = new AtomicInteger();
+
+        dmpRevisionCache.get(-1, 1, () -> {
+            loads.incrementAndGet();
+            // e.g. a GDPR anonymisation committed while the revision was read
+            dmpRevisionCache.invalidateAll();
+            return dmpDO;
+        });
+        dmpRevisionCache.get(-1, 1, () -> {
+            loads.incrementAndGet();
+            return dmpDO;
+        });
+        dmpRevisionCache.get(-1, 1, () -> {
+            loads.incrementAndGet();
+            return dmpDO;
+        });
+
+        assertEquals(2, loads.get());
+    }
+
     @Transactional
     private void updateDMP(long id){
         Dmp dmp = dmpRepo.findById(id);
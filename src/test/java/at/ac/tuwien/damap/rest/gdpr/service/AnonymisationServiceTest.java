@@ -0,0 +1,131 @@
+package at.ac.tuwien.damap.rest.gdpr.service;
+
+import at.ac.tuwien.damap.TestSetup;
+import at.ac.tuwien.damap.conversion.RenderedDocumentCache;
+import at.ac.tuwien.damap.domain.Contributor;
+import at.ac.tuwien.damap.enums.EExportJobStatus;
+import at.ac.tuwien.damap.enums.EIdentifierType;
+import at.ac.tuwien.damap.enums.ETemplateType;
+import at.ac.tuwien.damap.repo.DmpRepo;
+import at.ac.tuwien.damap.rest.dmp.domain.ContributorDO;
+import at.ac.tuwien.damap.rest.dmp.domain.DmpDO;
+import at.ac.tuwien.damap.rest.dmp.domain.IdentifierDO;
+import at.ac.tuwien.damap.rest.dmp.service.DmpService;
+import at.ac.tuwien.damap.rest.gdpr.domain.GdprResult;
+import io.quarkus.test.junit.QuarkusTest;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import javax.inject.Inject;
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+@QuarkusTest
+class AnonymisationServiceTest extends TestSetup {
+
+    private static final String UNIVERSITY_ID = "anonymisation-test";
+
+    @Inject
+    AnonymisationService anonymisationService;
+
+    @Inject
+    GdprService gdprService;
+
+    @Inject
+    DmpService dmpService;
+
+    @Inject
+    DmpRepo dmpRepo;
+
+    @Inject
+    RenderedDocumentCache renderedDocumentCache;
+
+    @Test
+    void statementsCoverAuditTablesTest() {
+        // table names are not quoted, so their case does not matter
+        List<String> statements = anonymisationService.getStatements().stream()
+                .map(statement -> statement.toLowerCase(Locale.ROOT))
+                .collect(Collectors.toList());
+
+        Assertions.assertTrue(statements.stream().anyMatch(statement -> statement.startsWith("update contributor_aud ")));
+        Assertions.assertTrue(statements.stream().anyMatch(statement -> statement.startsWith("update identifier_aud ")));
+        Assertions.assertTrue(statements.stream().anyMatch(statement -> statement.startsWith("update access_management ")));
+        // consent is not audited
+        Assertions.assertTrue(statements.stream().noneMatch(statement -> statement.startsWith("update consent_aud ")));
+    }
+
+    @Test
+    void anonymiseUserTest() throws InterruptedException, IOException {
+        DmpDO dmpDO = dmpService.create(getDmpWithContributor(), UNIVERSITY_ID);
+        dmpDO.setDescription("Updated, so the contributor has several audited revisions");
+        dmpService.update(dmpDO);
+        long version = dmpRepo.getVersion(dmpDO.getId());
+        String cachedKey = renderedDocumentCache.getKey(dmpDO.getId(), ETemplateType.SCIENCE_EUROPE);
+        renderedDocumentCache.put(cachedKey, new XWPFDocument()).close();
+        // a document still being rendered from the data before the anonymisation
+        String renderingKey = renderedDocumentCache.getKey(dmpDO.getId(), ETemplateType.FWF);
+        Assertions.assertFalse(gdprService.getGdprBaseData(UNIVERSITY_ID).stream()
+                .allMatch(result -> result.getEntries().isEmpty()));
+
+        AnonymisationJob job = anonymisationService.submit(List.of(UNIVERSITY_ID, " " + UNIVERSITY_ID, ""));
+        Assertions.assertEquals(1, job.getUniversityIds().size());
+        awaitFinished(job);
+        dmpRepo.getEntityManager().clear();
+
+        Assertions.assertEquals(EExportJobStatus.DONE, job.getStatus());
+        Assertions.assertEquals(1, job.getProcessed());
+        Assertions.assertTrue(job.getUpdatedRows() > 0);
+        for (GdprResult result : gdprService.getGdprExtendedData(UNIVERSITY_ID)) {
+            Assertions.assertTrue(result.getEntries().isEmpty(), result.getEntity());
+        }
+
+        Contributor contributor = dmpRepo.findById(dmpDO.getId()).getContributorList().get(0);
+        Assertions.assertNull(contributor.getUniversityId());
+        Assertions.assertNull(contributor.getFirstName());
+        Assertions.assertNull(contributor.getMbox());
+        Assertions.assertNull(contributor.getPersonIdentifier().getIdentifier());
+        Assertions.assertEquals(EIdentifierType.OTHER, contributor.getPersonIdentifier().getIdentifierType());
+        Assertions.assertTrue(dmpRepo.getVersion(dmpDO.getId()) > version);
+        Assertions.assertNull(renderedDocumentCache.open(cachedKey));
+        renderedDocumentCache.put(renderingKey, new XWPFDocument()).close();
+        Assertions.assertNull(renderedDocumentCache.open(renderingKey));
+
+        Assertions.assertEquals(0, count("SELECT count(*) FROM contributor_aud WHERE university_id = :id "
+                                         + "OR mbox = 'anonymisation@example.com'"));
+        Assertions.assertEquals(0, count("SELECT count(*) FROM identifier_aud WHERE identifier = :id"));
+        Assertions.assertEquals(0, count("SELECT count(*) FROM access_management_aud WHERE university_id = :id"));
+    }
+
+    private long count(String sql) {
+        return ((Number) dmpRepo.getEntityManager().createNativeQuery(sql.replace(":id", "'" + UNIVERSITY_ID + "'"))
+                .getSingleResult()).longValue();
+    }
+
+    private void awaitFinished(AnonymisationJob job) throws InterruptedException {
+        for (int i = 0; i < 100 && job.getFinished() == null; i++) {
+            Thread.sleep(100);
+        }
+        Assertions.assertNotNull(job.getFinished());
+    }
+
+    private DmpDO getDmpWithContributor() {
+        IdentifierDO identifier = new IdentifierDO();
+        identifier.setType(EIdentifierType.OTHER);
+        identifier.setIdentifier(UNIVERSITY_ID);
+
+        ContributorDO contributor = new ContributorDO();
+        contributor.setUniversityId(UNIVERSITY_ID);
+        contributor.setPersonId(identifier);
+        contributor.setFirstName("Anna");
+        contributor.setLastName("Nonym");
+        contributor.setMbox("anonymisation@example.com");
+
+        DmpDO dmp = new DmpDO();
+        dmp.setTitle("anonymiseUserTest");
+        dmp.setContributors(List.of(contributor));
+        return dmp;
+    }
+}
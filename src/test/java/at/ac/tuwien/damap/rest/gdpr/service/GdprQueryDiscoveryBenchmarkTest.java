@@ -0,0 +1,69 @@
+package at.ac.tuwien.damap.rest.gdpr.service;
+
+import at.ac.tuwien.damap.annotations.gdpr.Gdpr;
+import io.quarkus.test.junit.QuarkusTest;
+import lombok.extern.jbosslog.JBossLog;
+import org.hibernate.proxy.HibernateProxy;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.reflections.Reflections;
+
+import javax.inject.Inject;
+import javax.persistence.EntityManagerFactory;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Compares the time needed to discover the GDPR entities and build their queries by the previous classpath scan
+ * and the persistence metamodel. Only runs on demand:
+ * {@code mvn test -Dtest=GdprQueryDiscoveryBenchmarkTest -Ddamap.benchmark=true}
+ */
+@QuarkusTest
+@JBossLog
+@EnabledIfSystemProperty(named = "damap.benchmark", matches = "true")
+class GdprQueryDiscoveryBenchmarkTest {
+
+    private static final int ITERATIONS = 20;
+
+    @Inject
+    EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void benchmarkQueryDiscovery() {
+        Set<Class<?>> scanned = scan();
+        Assertions.assertEquals(scanned, new HashSet<>(GdprService.getGdprClasses(entityManagerFactory)));
+
+        long scanNanos = measure(this::scan);
+        long metamodelNanos = measure(() -> GdprService.getGdprClasses(entityManagerFactory));
+
+        log.infov("{0} GDPR entities, discovery and query building: classpath scan {1} microseconds, metamodel {2} microseconds",
+                scanned.size(), scanNanos / 1000, metamodelNanos / 1000);
+        Assertions.assertTrue(metamodelNanos < scanNanos);
+    }
+
+    // previous implementation, run in the constructor of GdprService
+    private Set<Class<?>> scan() {
+        Set<Class<?>> gdprClasses = new Reflections("at.ac.tuwien.damap.domain").getTypesAnnotatedWith(Gdpr.class);
+        gdprClasses.removeIf(HibernateProxy.class::isAssignableFrom);
+        return gdprClasses;
+    }
+
+    private long measure(Supplier<? extends Collection<Class<?>>> discovery) {
+        // warm up, so class loading does not count
+        build(discovery.get());
+        long before = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            build(discovery.get());
+        }
+        return (System.nanoTime() - before) / ITERATIONS;
+    }
+
+    private void build(Collection<Class<?>> gdprClasses) {
+        for (Class<?> gdprClass : gdprClasses) {
+            HqlQueryUtil.buildHqlQuery(GdprQueryUtil.buildQueryObject(gdprClass), true);
+        }
+    }
+}
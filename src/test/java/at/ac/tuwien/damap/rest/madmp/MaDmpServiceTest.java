@@ -1,5 +1,9 @@
 package at.ac.tuwien.damap.rest.madmp;
 
+import at.ac.tuwien.damap.r3data.dto.RepositoryRecord;
+import at.ac.tuwien.damap.rest.dmp.domain.DatasetDO;
+import at.ac.tuwien.damap.rest.dmp.domain.DmpDO;
+import at.ac.tuwien.damap.rest.dmp.domain.RepositoryDO;
 import at.ac.tuwien.damap.rest.dmp.mapper.MapperService;
 import at.ac.tuwien.damap.rest.madmp.dto.Dmp;
 import at.ac.tuwien.damap.rest.madmp.mapper.MaDmpMapper;
@@ -8,8 +12,13 @@ import io.quarkus.test.junit.QuarkusTest;
 import io.quarkus.test.security.TestSecurity;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.re3data.schema._2_2.Re3Data;
 
 import javax.inject.Inject;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @QuarkusTest
 class MaDmpServiceTest {
@@ -34,4 +43,44 @@ class MaDmpServiceTest {
         Dmp dmp = MaDmpMapper.mapToMaDmp(testDOFactory.getOrCreateTestDmpDOEmpty(), new Dmp(), mapperService);
         Assertions.assertNotNull(dmp);
     }
+
+    @Test
+    void repositoriesAreResolvedOncePerExportTest() {
+        DmpDO dmpDO = new DmpDO();
+        for (int i = 0; i < 30; i++) {
+            DatasetDO datasetDO = new DatasetDO();
+            datasetDO.setReferenceHash("dataset" + i);
+            dmpDO.getDatasets().add(datasetDO);
+        }
+        for (String id : List.of("r3d1", "r3d2")) {
+            RepositoryDO repositoryDO = new RepositoryDO();
+            repositoryDO.setRepositoryId(id);
+            dmpDO.getDatasets().forEach(datasetDO -> repositoryDO.getDatasets().add(datasetDO.getReferenceHash()));
+            dmpDO.getRepositories().add(repositoryDO);
+        }
+
+        MapperService mockMapperService = Mockito.mock(MapperService.class);
+        Mockito.when(mockMapperService.getRe3DataRepositories(Mockito.any()))
+                .thenReturn(Map.of("r3d1", getRe3DataRepository("https://one.example"),
+                        "r3d2", getRe3DataRepository("https://two.example")));
+
+        Dmp dmp = MaDmpMapper.mapToMaDmp(dmpDO, new Dmp(), mockMapperService);
+
+        Mockito.verify(mockMapperService, Mockito.times(1)).getRe3DataRepositories(Set.of("r3d1", "r3d2"));
+        Mockito.verify(mockMapperService, Mockito.never()).getRe3DataRepository(Mockito.any());
+        Assertions.assertEquals(30, dmp.getDataset().size());
+        dmp.getDataset().forEach(dataset -> {
+            Assertions.assertEquals(2, dataset.getDistribution().size());
+            Assertions.assertEquals("https://one.example", dataset.getDistribution().get(0).getAccessUrl());
+            Assertions.assertEquals("https://two.example", dataset.getDistribution().get(1).getAccessUrl());
+        });
+    }
+
+    private RepositoryRecord getRe3DataRepository(String url) {
+        Re3Data.Repository repository = new Re3Data.Repository();
+        repository.setRepositoryURL(url);
+        Re3Data re3Data = new Re3Data();
+        re3Data.getRepository().add(repository);
+        return RepositoryRecord.of(url, re3Data);
+    }
 }
@@ -0,0 +1,141 @@
+package at.ac.tuwien.damap.rest.persons;
+
+import at.ac.tuwien.damap.enums.EIdentifierType;
+import at.ac.tuwien.damap.rest.PersonServiceBroker;
+import at.ac.tuwien.damap.rest.base.ResultList;
+import at.ac.tuwien.damap.rest.base.Search;
+import at.ac.tuwien.damap.rest.dmp.domain.ContributorDO;
+import at.ac.tuwien.damap.rest.dmp.domain.IdentifierDO;
+import org.jboss.resteasy.specimpl.MultivaluedMapImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import javax.ws.rs.core.MultivaluedMap;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+class FederatedPersonSearchTest {
+
+    private FederatedPersonSearch federatedPersonSearch;
+
+    private final Map<String, PersonService> services = new LinkedHashMap<>();
+
+    @BeforeEach
+    void setup() {
+        PersonSearchCache personSearchCache = new PersonSearchCache();
+        personSearchCache.cacheTtl = Duration.ofMinutes(10);
+        personSearchCache.cacheMaxSize = 100;
+        personSearchCache.rateLimitRequests = 20;
+        personSearchCache.rateLimitPeriod = Duration.ofSeconds(10);
+        personSearchCache.init();
+
+        PersonServiceBroker personServiceBroker = Mockito.mock(PersonServiceBroker.class);
+        Mockito.when(personServiceBroker.getServices()).thenReturn(services);
+
+        federatedPersonSearch = new FederatedPersonSearch();
+        federatedPersonSearch.threads = 4;
+        federatedPersonSearch.timeout = Duration.ofMillis(500);
+        federatedPersonSearch.personServiceBroker = personServiceBroker;
+        federatedPersonSearch.personSearchCache = personSearchCache;
+        federatedPersonSearch.init();
+    }
+
+    @AfterEach
+    void shutdown() {
+        federatedPersonSearch.shutdown();
+    }
+
+    @Test
+    void resultsAreMergedByIdentifierTest() {
+        services.put("UNIVERSITY", service(0, contributor("u1", "0000-0000-0000-0001", null, "Doe"),
+                contributor("u2", null, "Max", "Mustermann")));
+        services.put("ORCID", service(0, contributor(null, "https://orcid.org/0000-0000-0000-0001", "Jane", "Doe"),
+                contributor(null, "0000-0000-0000-0002", "John", "Smith")));
+
+        List<FederatedSearchResultDO> results = search();
+
+        Assertions.assertEquals(2, results.size());
+        FederatedSearchResultDO last = results.get(1);
+        Assertions.assertTrue(last.isComplete());
+        Assertions.assertEquals(3, last.getItems().size());
+        ContributorDO merged = last.getItems().stream()
+                .filter(contributor -> "u1".equals(contributor.getUniversityId())).findFirst().orElseThrow();
+        Assertions.assertEquals("Jane", merged.getFirstName());
+    }
+
+    @Test
+    void slowServiceDoesNotDelayOthersTest() {
+        services.put("SLOW", service(5000, contributor("u1", null, "Jane", "Doe")));
+        services.put("FAST", service(0, contributor("u2", null, "John", "Smith")));
+        services.put("BROKEN", Mockito.mock(PersonService.class, invocation -> {
+            throw new IllegalStateException("unavailable");
+        }));
+
+        long start = System.currentTimeMillis();
+        List<FederatedSearchResultDO> results = search();
+
+        Assertions.assertTrue(System.currentTimeMillis() - start < 2000);
+        Assertions.assertEquals(3, results.size());
+        Assertions.assertEquals(List.of("u2"), results.stream()
+                .filter(result -> result.getService().equals("FAST")).findFirst().orElseThrow()
+                .getItems().stream().map(ContributorDO::getUniversityId).toList());
+        FederatedSearchResultDO last = results.get(2);
+        Assertions.assertEquals("SLOW", last.getService());
+        Assertions.assertEquals(FederatedSearchResultDO.Status.TIMEOUT, last.getStatus());
+        Assertions.assertTrue(last.isComplete());
+        Assertions.assertTrue(results.stream().anyMatch(result -> result.getService().equals("BROKEN")
+                && result.getStatus() == FederatedSearchResultDO.Status.FAILED));
+    }
+
+    @Test
+    void timedOutSearchIsCachedForTheNextSearchTest() throws InterruptedException {
+        PersonService slow = service(800, contributor("u1", null, "Jane", "Doe"));
+        services.put("SLOW", slow);
+
+        Assertions.assertEquals(FederatedSearchResultDO.Status.TIMEOUT, search().get(0).getStatus());
+        // the timed out search is not interrupted and completes in the background
+        Thread.sleep(600);
+        List<FederatedSearchResultDO> results = search();
+
+        Assertions.assertEquals(FederatedSearchResultDO.Status.OK, results.get(0).getStatus());
+        Assertions.assertEquals(1, results.get(0).getItems().size());
+        Mockito.verify(slow, Mockito.times(1)).search(Mockito.any());
+    }
+
+    private List<FederatedSearchResultDO> search() {
+        MultivaluedMap<String, String> params = new MultivaluedMapImpl<>();
+        params.add("q", "doe");
+        List<FederatedSearchResultDO> results = new ArrayList<>();
+        federatedPersonSearch.search(params, "user", results::add);
+        return results;
+    }
+
+    private PersonService service(long delay, ContributorDO... contributors) {
+        PersonService service = Mockito.mock(PersonService.class);
+        Mockito.when(service.search(Mockito.any())).thenAnswer(invocation -> {
+            Thread.sleep(delay);
+            return ResultList.fromItemsAndSearch(List.of(contributors), Search.fromMap(invocation.getArgument(0)));
+        });
+        return service;
+    }
+
+    private ContributorDO contributor(String universityId, String orcid, String firstName, String lastName) {
+        ContributorDO contributor = new ContributorDO();
+        contributor.setUniversityId(universityId);
+        if (orcid != null) {
+            IdentifierDO identifier = new IdentifierDO();
+            identifier.setIdentifier(orcid);
+            identifier.setType(EIdentifierType.ORCID);
+            contributor.setPersonId(identifier);
+        }
+        contributor.setFirstName(firstName);
+        contributor.setLastName(lastName);
+        return contributor;
+    }
+}
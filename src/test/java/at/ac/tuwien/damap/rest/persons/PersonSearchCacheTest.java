@@ -0,0 +1,164 @@
+package at.ac.tuwien.damap.rest.persons;
+
+import at.ac.tuwien.damap.rest.base.ResultList;
+import at.ac.tuwien.damap.rest.base.Search;
+import at.ac.tuwien.damap.rest.dmp.domain.ContributorDO;
+import org.jboss.resteasy.specimpl.MultivaluedMapImpl;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MultivaluedMap;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+class PersonSearchCacheTest {
+
+    private PersonSearchCache personSearchCache;
+
+    private PersonService personService;
+
+    @BeforeEach
+    void setup() {
+        personSearchCache = new PersonSearchCache();
+        personSearchCache.cacheTtl = Duration.ofMinutes(10);
+        personSearchCache.cacheMaxSize = 100;
+        personSearchCache.rateLimitRequests = 20;
+        personSearchCache.rateLimitPeriod = Duration.ofSeconds(10);
+        personSearchCache.waitTimeout = Duration.ofSeconds(5);
+        personSearchCache.init();
+        personService = Mockito.mock(PersonService.class);
+    }
+
+    @Test
+    void repeatedSearchIsCachedTest() {
+        Mockito.when(personService.search(Mockito.any())).thenAnswer(invocation -> result(invocation.getArgument(0),
+                contributor("Jane", "Smith"), contributor("John", "Smithers")));
+
+        search("Smith");
+        ResultList<ContributorDO> result = search("  smith ");
+
+        Assertions.assertEquals(2, result.getItems().size());
+        Mockito.verify(personService, Mockito.times(1)).search(Mockito.any());
+    }
+
+    @Test
+    void emptyResultIsNotCachedTest() {
+        // a service may report an outage as an empty result
+        Mockito.when(personService.search(Mockito.any())).thenAnswer(invocation -> result(invocation.getArgument(0)));
+
+        search("smi");
+        search("smi");
+        Mockito.verify(personService, Mockito.times(2)).search(Mockito.any());
+    }
+
+    @Test
+    void serviceFailureIsReportedAsBadGatewayTest() {
+        Mockito.when(personService.search(Mockito.any())).thenThrow(new IllegalStateException("ORCID is down"));
+
+        WebApplicationException e = Assertions.assertThrows(WebApplicationException.class, () -> search("smith"));
+        Assertions.assertEquals(502, e.getResponse().getStatus());
+    }
+
+    @Test
+    void failureIsPassedToConcurrentSearchesTest() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Mockito.when(personService.search(Mockito.any())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            throw new LinkageError("broken person service");
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<ResultList<ContributorDO>>> searches = List.of(
+                    executor.submit(() -> search("smith")), executor.submit(() -> search("smith")));
+            Thread.sleep(200);
+            release.countDown();
+            for (Future<ResultList<ContributorDO>> future : searches) {
+                ExecutionException e = Assertions.assertThrows(ExecutionException.class,
+                        () -> future.get(5, TimeUnit.SECONDS));
+                Assertions.assertInstanceOf(LinkageError.class, e.getCause());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Mockito.verify(personService, Mockito.times(1)).search(Mockito.any());
+    }
+
+    @Test
+    void concurrentIdenticalSearchesAreCollapsedTest() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Mockito.when(personService.search(Mockito.any())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return result(invocation.getArgument(0), contributor("Jane", "Smith"));
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<ResultList<ContributorDO>>> searches = List.of(
+                    executor.submit(() -> search("smith")), executor.submit(() -> search("smith")),
+                    executor.submit(() -> search("smith")), executor.submit(() -> search("smith")));
+            Thread.sleep(200);
+            release.countDown();
+            for (Future<ResultList<ContributorDO>> future : searches) {
+                Assertions.assertEquals(1, future.get(5, TimeUnit.SECONDS).getItems().size());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Mockito.verify(personService, Mockito.times(1)).search(Mockito.any());
+    }
+
+    @Test
+    void searchesAreRateLimitedPerUserTest() {
+        personSearchCache.rateLimitRequests = 2;
+        personSearchCache.init();
+        Mockito.when(personService.search(Mockito.any())).thenAnswer(invocation -> result(invocation.getArgument(0),
+                contributor("Jane", "Smith")));
+
+        personSearchCache.search("ORCID", personService, params("a1", 10), "user");
+        personSearchCache.search("ORCID", personService, params("b1", 10), "user");
+        WebApplicationException e = Assertions.assertThrows(WebApplicationException.class,
+                () -> personSearchCache.search("ORCID", personService, params("c1", 10), "user"));
+        Assertions.assertEquals(429, e.getResponse().getStatus());
+
+        // cached results and other users are not affected
+        personSearchCache.search("ORCID", personService, params("a1", 10), "user");
+        personSearchCache.search("ORCID", personService, params("c1", 10), "otherUser");
+    }
+
+    private ResultList<ContributorDO> search(String query) {
+        return search(query, 10);
+    }
+
+    private ResultList<ContributorDO> search(String query, int perPage) {
+        return personSearchCache.search("ORCID", personService, params(query, perPage), "user");
+    }
+
+    private MultivaluedMap<String, String> params(String query, int perPage) {
+        MultivaluedMap<String, String> params = new MultivaluedMapImpl<>();
+        params.add("q", query);
+        params.add("perPage", String.valueOf(perPage));
+        params.add("searchService", "ORCID");
+        return params;
+    }
+
+    private ResultList<ContributorDO> result(MultivaluedMap<String, String> params, ContributorDO... contributors) {
+        return ResultList.fromItemsAndSearch(List.of(contributors), Search.fromMap(params));
+    }
+
+    private ContributorDO contributor(String firstName, String lastName) {
+        ContributorDO contributor = new ContributorDO();
+        contributor.setFirstName(firstName);
+        contributor.setLastName(lastName);
+        return contributor;
+    }
+}
@@ -0,0 +1,87 @@
+package at.ac.tuwien.damap.rest.persons.orcid;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+
+import org.eclipse.microprofile.rest.client.inject.RestClient;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import at.ac.tuwien.damap.rest.dmp.domain.ContributorDO;
+import at.ac.tuwien.damap.rest.persons.orcid.models.ORCIDRecord;
+import at.ac.tuwien.damap.util.TestDOFactory;
+import io.quarkus.cache.Cache;
+import io.quarkus.cache.CacheName;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.mockito.InjectMock;
+
+@QuarkusTest
+class ORCIDPersonServiceImplTest {
+
+    @Inject
+    ORCIDPersonServiceImpl orcidPersonService;
+
+    @Inject
+    TestDOFactory testDOFactory;
+
+    @InjectMock
+    @RestClient
+    OrcidPersonService orcidRestClient;
+
+    @Inject
+    @CacheName("orcid")
+    Cache orcidCache;
+
+    private ORCIDRecord testRecord;
+
+    @BeforeEach
+    void setup() {
+        orcidCache.invalidateAll().await().indefinitely();
+        testRecord = testDOFactory.getORCIDTestRecord();
+    }
+
+    @Test
+    void recordIsCachedTest() {
+        Mockito.when(orcidRestClient.get("0000-0000-0000-0001")).thenReturn(testRecord);
+
+        ContributorDO first = orcidPersonService.read("0000-0000-0000-0001");
+        ContributorDO second = orcidPersonService.read("0000-0000-0000-0001");
+
+        Assertions.assertEquals(first.getLastName(), second.getLastName());
+        Mockito.verify(orcidRestClient, Mockito.times(1)).get("0000-0000-0000-0001");
+    }
+
+    @Test
+    void readAllLooksUpConcurrentlyTest() {
+        // every lookup waits until all have started, which only succeeds if they run in parallel
+        List<String> ids = List.of("0000-0000-0000-0002", "0000-0000-0000-0003", "0000-0000-0000-0004");
+        CountDownLatch started = new CountDownLatch(ids.size());
+        Mockito.when(orcidRestClient.get(Mockito.anyString())).thenAnswer(invocation -> {
+            started.countDown();
+            started.await(5, TimeUnit.SECONDS);
+            return testRecord;
+        });
+
+        Map<String, ContributorDO> contributors = orcidPersonService.readAll(ids);
+
+        Assertions.assertEquals(0, started.getCount());
+        Assertions.assertEquals(ids.size(), contributors.size());
+    }
+
+    @Test
+    void failedLookupsAreLeftOutTest() {
+        Mockito.when(orcidRestClient.get("0000-0000-0000-0005")).thenReturn(testRecord);
+        Mockito.when(orcidRestClient.get("0000-0000-0000-0006")).thenThrow(new IllegalStateException("not found"));
+
+        Map<String, ContributorDO> contributors = orcidPersonService
+                .readAll(List.of("0000-0000-0000-0005", "0000-0000-0000-0006"));
+
+        Assertions.assertEquals(List.of("0000-0000-0000-0005"), List.copyOf(contributors.keySet()));
+    }
+}
@@ -5,6 +5,8 @@ import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
@@ -54,6 +56,14 @@ class GdprServiceTest extends TestSetup {
         assertTrue(contributor.isPresent());
     }
 
+    @Test
+    void testWriteGdprData_shouldWriteAllEntitiesInOrder() throws IOException {
+        List<GdprResult> written = new ArrayList<>();
+        gdprService.writeGdprData("012345", true, written::add);
+
+        assertEquals(gdprService.getGdprExtendedData("012345"), written);
+    }
+
     @Test
     void testsContextJoinQuery_shouldReturnData() throws NoSuchFieldException {
         List<String> fields = Arrays.asList("id", "project.title", "project.start", "title");
@@ -50,6 +50,7 @@ import at.ac.tuwien.damap.rest.dmp.mapper.DmpDOMapper;
 import at.ac.tuwien.damap.rest.persons.orcid.models.ORCIDRecord;
 import at.ac.tuwien.damap.rest.version.VersionDO;
 import at.ac.tuwien.damap.rest.version.VersionDOMapper;
+import at.ac.tuwien.damap.rest.dmp.service.DmpEnrichmentService;
 import at.ac.tuwien.damap.rest.version.VersionService;
 import lombok.extern.jbosslog.JBossLog;
 
@@ -69,6 +70,9 @@ public class TestDOFactory {
     @Inject
     VersionService versionService;
 
+    @Inject
+    DmpEnrichmentService dmpEnrichmentService;
+
     @Inject
     DmpVersionRepo dmpVersionRepo;
 
@@ -88,7 +92,11 @@ public class TestDOFactory {
             this.setDataOnDMP(newTestDmpDO);
         }
         newTestDmpDO.setTitle(title);
-        return dmpService.create(newTestDmpDO, editorId);
+        DmpDO dmpDO = dmpService.create(newTestDmpDO, editorId);
+        // the enrichment worker does not run in tests, created DMPs are returned enriched like after a save
+        dmpEnrichmentService.processDue();
+        dmpRepo.getEntityManager().clear();
+        return dmpService.getDmpById(dmpDO.getId());
     }
 
     private void setDataOnDMP(DmpDO dmpDO) {
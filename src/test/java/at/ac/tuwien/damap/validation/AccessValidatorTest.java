@@ -1,7 +1,5 @@
 package at.ac.tuwien.damap.validation;
 
-import at.ac.tuwien.damap.domain.Access;
-import at.ac.tuwien.damap.domain.Dmp;
 import at.ac.tuwien.damap.enums.EFunctionRole;
 import at.ac.tuwien.damap.repo.AccessRepo;
 import at.ac.tuwien.damap.security.SecurityService;
@@ -35,9 +33,9 @@ class AccessValidatorTest {
     @BeforeEach
     public void setup() {
         Mockito.when(securityService.isAdmin()).thenReturn(false);
-        Mockito.when(accessRepo.getAllDmpByUniversityId(ownerId)).thenReturn(getAccessListOwner());
-        Mockito.when(accessRepo.getAllDmpByUniversityId(editorId)).thenReturn(getAccessListEditor());
-        Mockito.when(accessRepo.getAllDmpByUniversityId(guestId)).thenReturn(getAccessListGuest());
+        Mockito.when(accessRepo.getRolesByUniversityIdAndDmpId(ownerId, -1)).thenReturn(List.of(EFunctionRole.OWNER));
+        Mockito.when(accessRepo.getRolesByUniversityIdAndDmpId(editorId, -1)).thenReturn(List.of(EFunctionRole.EDITOR));
+        Mockito.when(accessRepo.getRolesByUniversityIdAndDmpId(guestId, -1)).thenReturn(List.of(EFunctionRole.GUEST));
     }
 
     @Test
@@ -72,36 +70,20 @@ class AccessValidatorTest {
         Assertions.assertTrue(accessValidator.canEditDmp(-1, adminId));
     }
 
-    private List<Access> getAccessListOwner() {
-        Dmp dmp = new Dmp();
-        dmp.id = -1L;
-        Access access = new Access();
-        access.setUniversityId(ownerId);
-        access.setDmp(dmp);
-        access.setRole(EFunctionRole.OWNER);
-
-        return List.of(access);
-    }
-
-    private List<Access> getAccessListEditor() {
-        Dmp dmp = new Dmp();
-        dmp.id = -1L;
-        Access access = new Access();
-        access.setUniversityId(editorId);
-        access.setDmp(dmp);
-        access.setRole(EFunctionRole.EDITOR);
-
-        return List.of(access);
+    @Test
+    void testCanDeleteDmp() {
+        Assertions.assertTrue(accessValidator.canDeleteDmp(-1, ownerId));
+        Assertions.assertFalse(accessValidator.canDeleteDmp(-1, editorId));
+        Assertions.assertFalse(accessValidator.canDeleteDmp(-1, guestId));
+        Assertions.assertFalse(accessValidator.canDeleteDmp(-2, ownerId));
     }
 
-    private List<Access> getAccessListGuest() {
-        Dmp dmp = new Dmp();
-        dmp.id = -1L;
-        Access access = new Access();
-        access.setUniversityId(guestId);
-        access.setDmp(dmp);
-        access.setRole(EFunctionRole.GUEST);
+    @Test
+    void testRolesAreLoadedOncePerRequest() {
+        accessValidator.canViewDmp(-1, ownerId);
+        accessValidator.canEditDmp(-1, ownerId);
+        accessValidator.canDeleteDmp(-1, ownerId);
 
-        return List.of(access);
+        Mockito.verify(accessRepo, Mockito.times(1)).getRolesByUniversityIdAndDmpId(ownerId, -1);
     }
 }